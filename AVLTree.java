@@ -1,5 +1,16 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.LinkedList;
-import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * AVLTree
@@ -13,7 +24,34 @@ public class AVLTree {
 
     private IAVLNode root;
     private int nodes;
-    AVLNode externalLeaf;
+    final AVLNode externalLeaf; // immutable - shared by all leaves, so writers never touch it
+    private Aggregator aggregator; // null if the tree keeps no aggregates
+    private IAVLNode finger; // the node inserted or found last, where finger operations start - null if unknown
+    // keys of the finger's predecessor and successor, if known (+-infinity for none) - no key lies between them
+    private long fingerLo = UNKNOWN;
+    private long fingerHi = UNKNOWN;
+
+    private static final long UNKNOWN = Long.MIN_VALUE + 1; // not a key, nor +-infinity
+    private AVLTreeMetrics metrics; // null when disabled
+    private int walked; // nodes visited by the last descent - only stored while metrics are enabled
+    private AVLTreeSearchCache searchCache; // null when disabled
+    private int batchWork = -1; // rebalancing done by the running insertAll/deleteAll, -1 when none is running
+
+    private static final int PARALLEL_CUTOFF = 1 << 12; // smallest setOperation subproblem worth a fork
+
+    private static final Aggregator SUM_OF_KEYS = new Aggregator() {
+        public long identity() {
+            return 0;
+        }
+
+        public long lift(int key, String info) {
+            return key;
+        }
+
+        public long combine(long a, long b) {
+            return a + b;
+        }
+    };
 
     /*
      * public AVLTree()
@@ -21,11 +59,18 @@ public class AVLTree {
      *O(1)
      */
     public AVLTree() {
-        //initialize external leaf with isExternal = true
-        this.externalLeaf = new AVLNode("", -1);
-        this.externalLeaf.setIsExternal(true);
-        this.externalLeaf.setHeight(-1); // important to get the balance afterwards
-        this.externalLeaf.setSize(0); //important to get the size afterwards
+        this(null);
+    }
+
+    /**
+     * public AVLTree(Aggregator aggregator)
+     * AVL Tree constructor for a tree which keeps the aggregate of every subtree (see Aggregator), or none if
+     * aggregator is null.
+     * O(1)
+     */
+    public AVLTree(Aggregator aggregator) {
+        this.aggregator = aggregator;
+        this.externalLeaf = new AVLNode(); // height -1 and size 0, important to get balances and sizes
         this.root = null;
         this.nodes = 0;
     }
@@ -46,24 +91,59 @@ public class AVLTree {
      * Complexity: O(logn)
      */
     public String search(int k) {
-        IAVLNode n = search(getRoot(), k); // O(logn)
+        if (metrics == null) return searchKey(k);
+        long start = metrics.start();
+        String result = searchKey(k);
+        record(AVLTreeMetrics.Operation.SEARCH, start);
+        return result;
+    }
+
+    private String searchKey(int k) {
+        if (searchCache != null) {
+            String cached = searchCache.get(k); // O(1)
+            if (cached != null) return cached;
+        }
+        AVLNode n = findNode(k); // O(logn)
         if (n == null) return null;
-        if (!n.isRealNode()) return null; //O(1)
-        return n.getValue();
+        if (searchCache != null) searchCache.put(k, n.info);
+        return n.info;
     }
 
     /**
-     * private IAVLNode search(IAVLNode root, int k)
-     * Recursive function for the above search (method overloading) - searches for node with key k in the subtree of root
-     * Each iteration is O(1), number of recursions in worst case is O(h) = O(logn) recursive calls
+     * private AVLNode findNode(int k)
+     * The lookup fast path: returns the node with key k, or null if there is none.
+     * A loop over the fields of the concrete (final) AVLNode class - no recursion and no IAVLNode interface calls,
+     * so the JIT compiles it to a tight loop of loads and compares whatever node implementations it has seen.
+     * The visited nodes are counted in a local, which is only stored (for the metrics) when metrics are enabled.
+     * Complexity: O(logn)
+     */
+    private AVLNode findNode(int k) {
+        AVLNode n = (AVLNode) root;
+        int path = 0;
+        while (n != null && !n.isExternal) {
+            path++;
+            int key = n.key;
+            if (key == k) break;
+            n = key < k ? n.right : n.left;
+        }
+        if (metrics != null) walked = path;
+        return n == null || n.isExternal ? null : n;
+    }
+
+    /**
+     * public IAVLNode search(IAVLNode root, int k)
+     * Searches for the node with key k in the subtree of root (null if there is none) - iteratively, one level per step.
+     * For the whole tree, findNode is faster.
      * Complexity: O(logn)
      */
     public IAVLNode search(IAVLNode root, int k) {
-        if (root == null) return null;
-        if (!root.isRealNode()) return null;
-        if (root.getKey() == k) return root;
-        if (root.getKey() < k) return search(root.getRight(), k);
-        return search(root.getLeft(), k);
+        IAVLNode n = root;
+        while (n != null && n.isRealNode()) {
+            int key = n.getKey();
+            if (key == k) return n;
+            n = key < k ? n.getRight() : n.getLeft();
+        }
+        return null;
     }
 
 
@@ -89,15 +169,45 @@ public class AVLTree {
      * Complexity: O(logn)
      */
     public int insert(int k, String i) {
+        if (metrics == null) return insertKey(k, i);
+        long start = metrics.start();
+        int result = insertKey(k, i);
+        record(AVLTreeMetrics.Operation.INSERT, start);
+        return result;
+    }
+
+    private int insertKey(int k, String i) {
+        AVLNode a = (AVLNode) getRoot(); // the descent reads the AVLNode fields directly, like findNode
+        AVLNode b = null;
+        int path = 0;
+        while (a != null && !a.isExternal) {
+            path++;
+            b = a;
+            if (b.key == k) break;
+            if (k < a.key) a = a.left;
+            else a = a.right;
+        }
+        if (metrics != null) walked = path;
+        if (b != null && b.key == k) return -1;
+        return insertUnder(b, k, i);
+    }
+
+    /**
+     * private int insertUnder(IAVLNode b, int k, String i)
+     * Hangs a new node k -> i under b (the last node on the search path of k, or null if the tree is empty),
+     * rebalances up to the root and makes the new node the finger. Returns insert's result.
+     * Complexity: O(logn)
+     */
+    private int insertUnder(IAVLNode b, int k, String i) {
         int counter = 0;
         IAVLNode newNode = createNewNode(k, i);
-        IAVLNode a = getRoot();
-        IAVLNode b = null;
-        while (a != null && a.isRealNode()) {
-            b = a;
-            if (b.getKey() == k) return -1;
-            if (k < a.getKey()) a = a.getLeft();
-            else a = a.getRight();
+        if (b != null && b == finger) {
+            // newNode is b's neighbour, so it takes b's place in the gap
+            if (k > b.getKey()) fingerLo = b.getKey();
+            else fingerHi = b.getKey();
+            this.finger = newNode;
+        } else {
+            moveFinger(newNode);
         }
 
         // We need to insert under b
@@ -142,6 +252,176 @@ public class AVLTree {
         return counter;
     }
 
+    /**
+     * public String fingerSearch(int k)
+     * search, starting from the finger (the node inserted or found last) instead of the root.
+     * See fingerLocate.
+     * Complexity: O(log d) descent, d = the number of keys between k and the finger
+     */
+    public String fingerSearch(int k) {
+        if (metrics == null) return fingerSearchKey(k);
+        long start = metrics.start();
+        String result = fingerSearchKey(k);
+        record(AVLTreeMetrics.Operation.SEARCH, start);
+        return result;
+    }
+
+    private String fingerSearchKey(int k) {
+        IAVLNode n = fingerLocate(k);
+        if (n == null) return null;
+        if (n != finger) moveFinger(n);
+        return n.getKey() == k ? n.getValue() : null;
+    }
+
+    /**
+     * public int fingerInsert(int k, String i)
+     * insert, locating the place of k from the finger (the node inserted or found last) instead of the root.
+     * For nearly sorted keys the place is next to the finger, so the descent is O(1) instead of O(logn).
+     * Returns the same as insert.
+     * Complexity: O(log d) descent, d = the number of keys between k and the finger, plus insert's O(logn) climb
+     * to update heights and sizes
+     */
+    public int fingerInsert(int k, String i) {
+        if (metrics == null) return fingerInsertKey(k, i);
+        long start = metrics.start();
+        int result = fingerInsertKey(k, i);
+        record(AVLTreeMetrics.Operation.INSERT, start);
+        return result;
+    }
+
+    private int fingerInsertKey(int k, String i) {
+        IAVLNode n = fingerLocate(k);
+        if (n != null && n.getKey() == k) {
+            if (n != finger) moveFinger(n);
+            return -1;
+        }
+        return insertUnder(n, k, i);
+    }
+
+    /**
+     * private void moveFinger(IAVLNode n)
+     * Makes n (or none, if null) the finger, with an unknown gap.
+     * Complexity: O(1)
+     */
+    private void moveFinger(IAVLNode n) {
+        this.finger = n;
+        this.fingerLo = UNKNOWN;
+        this.fingerHi = UNKNOWN;
+    }
+
+    /**
+     * private IAVLNode fingerLocate(int k)
+     * Returns the node with key k, or else the last node on its search path (under which k would be inserted),
+     * or null if the tree is empty.
+     * If the finger f has no child on k's side and k falls in the gap between f and its neighbour, the answer is f.
+     * The gap is remembered, and a node inserted into it inherits half of it - so a run of appends
+     * never leaves the finger.
+     * Otherwise climbs from f to the first ancestor whose subtree must contain k: for k > f.key that is a left
+     * child whose parent's key is bigger than k (symmetrically for k < f.key). Climbing over right children
+     * (for k > f.key) doesn't widen the key range on k's side, so the descent starts from the lowest node
+     * that was reached through a left child.
+     * The path walked, for the metrics, is the finger, the nodes climbed to and the nodes descended through.
+     * Complexity: O(log d) descent, d = the number of keys between k and the finger
+     */
+    private IAVLNode fingerLocate(int k) {
+        if (empty()) return null;
+        if (metrics != null) walked = 1; // the finger, or the root if there is none
+        IAVLNode f = finger;
+        if (f != null && k > f.getKey() && !f.getRight().isRealNode()) {
+            if (fingerHi == UNKNOWN) {
+                IAVLNode s = successor(f);
+                fingerHi = s == null ? Long.MAX_VALUE : s.getKey();
+            }
+            if (k < fingerHi) return f;
+        } else if (f != null && k < f.getKey() && !f.getLeft().isRealNode()) {
+            if (fingerLo == UNKNOWN) {
+                IAVLNode s = predecessor(f);
+                fingerLo = s == null ? Long.MIN_VALUE : s.getKey();
+            }
+            if (k > fingerLo) return f;
+        }
+        IAVLNode x = f != null ? f : getRoot();
+        IAVLNode start = x; // descend from here
+        int path = 0; // nodes visited besides x
+        if (k != x.getKey()) {
+            boolean right = k > x.getKey();
+            while (x.getParent() != null) {
+                IAVLNode p = x.getParent();
+                path++;
+                if ((p.getLeft() == x) == right) {
+                    // p bounds the subtree of x on k's side
+                    if (right ? k < p.getKey() : k > p.getKey()) break;
+                    if (k == p.getKey()) {
+                        if (metrics != null) walked = 1 + path;
+                        return p;
+                    }
+                    start = p;
+                }
+                x = p;
+            }
+        }
+        IAVLNode a = start; // already visited
+        IAVLNode b = start;
+        while (a.isRealNode()) {
+            b = a;
+            if (k == a.getKey()) break;
+            a = k < a.getKey() ? a.getLeft() : a.getRight();
+            if (a.isRealNode()) path++;
+        }
+        if (metrics != null) walked = 1 + path;
+        return b;
+    }
+
+    /**
+     * public void setMetrics(AVLTreeMetrics metrics)
+     * Starts recording the operations of the tree into metrics, or stops recording if metrics is null.
+     * Complexity: O(1)
+     */
+    public void setMetrics(AVLTreeMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public AVLTreeMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * public void setSearchCache(AVLTreeSearchCache cache)
+     * Puts cache in front of search(int), or removes the cache if it is null. The cache must not be shared with
+     * another tree. It is kept consistent by the tree's own operations; infos changed through IAVLNode.setInfo
+     * aren't seen by it. fingerSearch bypasses it.
+     * Complexity: O(capacity of the cache)
+     */
+    public void setSearchCache(AVLTreeSearchCache cache) {
+        if (cache != null) cache.clear(); // it may hold another tree's items
+        this.searchCache = cache;
+    }
+
+    public AVLTreeSearchCache getSearchCache() {
+        return searchCache;
+    }
+
+    /**
+     * private void clearSearchCache()
+     * Drops all cached items, after an operation which replaced or removed many nodes at once.
+     * Complexity: O(capacity of the cache), O(1) without a cache
+     */
+    private void clearSearchCache() {
+        if (searchCache != null) searchCache.clear();
+    }
+
+    /**
+     * private void record(AVLTreeMetrics.Operation op, long start)
+     * Records an operation which started at start (from metrics.start()), with the path its descent walked
+     * (0 if it didn't descend, e.g. a search answered by the search cache). Only called when metrics are enabled.
+     * Complexity: O(1)
+     */
+    private void record(AVLTreeMetrics.Operation op, long start) {
+        long nanos = System.nanoTime() - start;
+        metrics.record(op, nanos, walked, getRank());
+        walked = 0;
+    }
+
     /**
      * public int rebalance(IAVLNode n)
      * Rebalancing a single node - check if any rotation is needed.
@@ -157,9 +437,11 @@ public class AVLTree {
             if (getBalance(n.getLeft()) < 0) {
                 // This is LR case
                 counter = 5; // add the rotation to counter
+                if (metrics != null) metrics.rotation(AVLTreeMetrics.Rotation.LR);
                 rotate(n.getLeft(), 'L');
             } else {
                 counter = 2; // add the rotation to counter
+                if (metrics != null) metrics.rotation(AVLTreeMetrics.Rotation.LL);
                 //TODO: single rotation for 'delete' should be 3, while for 'insert' it should be 2
             }
             rotate(n, 'R');
@@ -168,10 +450,12 @@ public class AVLTree {
             if (getBalance(n.getRight()) > 0) {
                 // This is RL case
                 counter = 5;
+                if (metrics != null) metrics.rotation(AVLTreeMetrics.Rotation.RL);
                 //TODO: single rotation for 'delete' should be 3, while for 'insert' it should be 2
                 rotate(n.getRight(), 'R');
             } else {
                 counter = 2; // add the rotation to counter
+                if (metrics != null) metrics.rotation(AVLTreeMetrics.Rotation.RR);
             }
             rotate(n, 'L');
         }
@@ -189,12 +473,21 @@ public class AVLTree {
      * Complexity: O(logn)
      */
     public int delete(int k) {
-        IAVLNode toDelete = search(this.root, k);
+        if (metrics == null) return deleteKey(k);
+        long start = metrics.start();
+        int result = deleteKey(k);
+        record(AVLTreeMetrics.Operation.DELETE, start);
+        return result;
+    }
+
+    private int deleteKey(int k) {
+        IAVLNode toDelete = findNode(k);
         int counter = 0;
 
         // k is not in tree
         if (toDelete == null) return -1;
         else if (!toDelete.isRealNode()) return -1;
+        if (searchCache != null) searchCache.invalidate(k); // the successor moved below keeps its key and info
 
         // case 'k is root' handled within the function
         IAVLNode p = toDelete.getParent(); //rank problem starts from p, could be null if k is root
@@ -210,12 +503,14 @@ public class AVLTree {
             toDelete.setInfo(suc.getValue());
             toDelete.setKey(suc.getKey());
             p = suc.getParent();
-            if (suc.getLeft().isRealNode() && suc.getRight().isRealNode())  //suc is a leaf
+            if (!suc.getLeft().isRealNode() && !suc.getRight().isRealNode())  //suc is a leaf
                 deleteLeaf(suc);
             else
                 deleteUnary(suc, 'R');
         }
 
+        moveFinger(p); // still in the tree, next to the deleted key
+
         //rebalance from p upwards
         if (updateHeight(p))
             counter++;
@@ -234,6 +529,170 @@ public class AVLTree {
         return counter;
     }
 
+    /**
+     * public int insertAll(int[] keys, String[] infos)
+     * inserts the items keys[i] -> infos[i]. Keys already in the tree (or repeated in the batch) are skipped,
+     * like insert would return -1 for them.
+     * The batch is sorted and applied recursively: the tree is split at the median batch key, the two halves of
+     * the batch are inserted into the two sides, and the sides are joined back with the median item between them.
+     * A side which became empty gets the rest of its run as a perfectly balanced subtree, and a run of one key is
+     * inserted into its side directly.
+     * Returns the number of rebalancing operations made by those joins, counted as insert counts them
+     * (a rotation as 2, a double rotation as 5, a height change as 1). It is not the sum that m single inserts
+     * would return, but it depends only on the tree and the batch.
+     * precondition: keys.length == infos.length
+     * Complexity: O(mlogm) sort + O(mlog(n/m + 1))
+     */
+    public int insertAll(int[] keys, String[] infos) {
+        if (keys.length != infos.length)
+            throw new IllegalArgumentException("got " + keys.length + " keys but " + infos.length + " infos");
+        long[] order = sortedBatch(keys);
+        int[] batchKeys = new int[order.length];
+        String[] batchInfos = new String[order.length];
+        int m = 0;
+        for (long o : order) {
+            int k = keys[(int) o];
+            if (m > 0 && batchKeys[m - 1] == k) continue; // repeated in the batch - keep the first
+            batchKeys[m] = k;
+            batchInfos[m++] = infos[(int) o];
+        }
+        batchWork = 0;
+        try {
+            replaceRoot(insertRun(empty() ? externalLeaf : getRoot(), batchKeys, batchInfos, 0, m));
+            return batchWork;
+        } finally {
+            batchWork = -1;
+        }
+    }
+
+    /**
+     * private IAVLNode insertRun(IAVLNode t, int[] keys, String[] infos, int lo, int hi)
+     * Inserts the sorted, distinct items [lo, hi) of keys/infos into the subtree t and returns the new subtree.
+     * Complexity: O((hi - lo)log(size(t)/(hi - lo) + 1))
+     */
+    private IAVLNode insertRun(IAVLNode t, int[] keys, String[] infos, int lo, int hi) {
+        if (lo == hi) return t;
+        if (!t.isRealNode()) {
+            return buildSorted(hi - lo, Arrays.stream(keys, lo, hi).iterator(),
+                    Arrays.asList(infos).subList(lo, hi).iterator(), new long[]{Long.MIN_VALUE});
+        }
+        if (hi - lo == 1) return insertNode(t, keys[lo], infos[lo]);
+        int mid = (lo + hi) >>> 1;
+        IAVLNode[] parts = splitNodes(t, keys[mid]);
+        IAVLNode x = parts[1] != null ? parts[1] : createNewNode(keys[mid], infos[mid]); // an existing item stays
+        IAVLNode left = insertRun(parts[0], keys, infos, lo, mid);
+        IAVLNode right = insertRun(parts[2], keys, infos, mid + 1, hi);
+        return joinNodes(left, x, right);
+    }
+
+    /**
+     * private IAVLNode insertNode(IAVLNode t, int k, String i)
+     * Inserts k -> i into the detached subtree t (unless k is there already) and returns the new subtree,
+     * rebalancing every node on the way back up with balanceNode.
+     * Complexity: O(height(t))
+     */
+    private IAVLNode insertNode(IAVLNode t, int k, String i) {
+        if (!t.isRealNode()) {
+            IAVLNode x = createNewNode(k, i);
+            updateNodeSize(x);
+            return x;
+        }
+        if (k == t.getKey()) return t;
+        if (k < t.getKey()) t.setLeft(insertNode(t.getLeft(), k, i));
+        else t.setRight(insertNode(t.getRight(), k, i));
+        return balanceNode(t);
+    }
+
+    /**
+     * public int deleteAll(int[] keys)
+     * deletes all items whose key is in keys. Keys not in the tree are skipped, like delete would return -1 for them.
+     * The batch is sorted and applied recursively, like insertAll: the tree is split at the median batch key
+     * (which drops it), the two halves of the batch are deleted from the two sides, and the sides are joined back.
+     * A run of one key is deleted from its side directly.
+     * Returns the number of rebalancing operations made by those joins, counted as delete counts them.
+     * Complexity: O(mlogm) sort + O(mlog(n/m + 1))
+     */
+    public int deleteAll(int[] keys) {
+        long[] order = sortedBatch(keys);
+        int[] batchKeys = new int[order.length];
+        int m = 0;
+        for (long o : order) {
+            int k = keys[(int) o];
+            if (m > 0 && batchKeys[m - 1] == k) continue;
+            batchKeys[m++] = k;
+            if (searchCache != null) searchCache.invalidate(k);
+        }
+        batchWork = 0;
+        try {
+            replaceRoot(deleteRun(empty() ? externalLeaf : getRoot(), batchKeys, 0, m));
+            return batchWork;
+        } finally {
+            batchWork = -1;
+        }
+    }
+
+    /**
+     * private IAVLNode deleteRun(IAVLNode t, int[] keys, int lo, int hi)
+     * Deletes the sorted, distinct keys [lo, hi) of keys from the subtree t and returns the new subtree.
+     * Complexity: O((hi - lo)log(size(t)/(hi - lo) + 1))
+     */
+    private IAVLNode deleteRun(IAVLNode t, int[] keys, int lo, int hi) {
+        if (lo == hi || !t.isRealNode()) return t;
+        if (hi - lo == 1) return deleteNode(t, keys[lo]);
+        int mid = (lo + hi) >>> 1;
+        IAVLNode[] parts = splitNodes(t, keys[mid]); // parts[1], if any, is the deleted node
+        IAVLNode left = deleteRun(parts[0], keys, lo, mid);
+        IAVLNode right = deleteRun(parts[2], keys, mid + 1, hi);
+        return joinNodes(left, right);
+    }
+
+    /**
+     * private IAVLNode deleteNode(IAVLNode t, int k)
+     * Deletes k from the detached subtree t, if it is there, and returns the new subtree: the node of k is replaced
+     * by the join of its children, and every node on the way back up is rebalanced with balanceNode.
+     * Complexity: O(height(t))
+     */
+    private IAVLNode deleteNode(IAVLNode t, int k) {
+        if (!t.isRealNode()) return t;
+        if (k == t.getKey()) return joinNodes(t.getLeft(), t.getRight());
+        if (k < t.getKey()) t.setLeft(deleteNode(t.getLeft(), k));
+        else t.setRight(deleteNode(t.getRight(), k));
+        return balanceNode(t);
+    }
+
+    /**
+     * private static long[] sortedBatch(int[] keys)
+     * Returns the positions of keys sorted by key (stable), each packed as key << 32 | position
+     * so the sort runs on primitives. The position is read back with (int) packed.
+     * Complexity: O(mlogm)
+     */
+    private static long[] sortedBatch(int[] keys) {
+        long[] order = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            order[i] = ((long) keys[i] << 32) | i;
+        }
+        Arrays.sort(order);
+        return order;
+    }
+
+    /**
+     * private void replaceRoot(IAVLNode result)
+     * Makes the subtree result (possibly an external leaf) the whole tree, after an operation which rebuilt it
+     * from split and joined subtrees. The finger is dropped, since its gap may have changed.
+     * Complexity: O(1)
+     */
+    private void replaceRoot(IAVLNode result) {
+        moveFinger(null);
+        if (result.isRealNode()) {
+            result.setParent(null);
+            this.setRoot(result);
+            this.nodes = result.getSize();
+        } else {
+            this.setRoot(null);
+            this.nodes = 0;
+        }
+    }
+
     /**
      * public void deleteLeaf (IAVLNode x)
      * receives IAVLNode x indicating leaf node to be deleted
@@ -297,18 +756,229 @@ public class AVLTree {
         return y;
     }
 
+    /**
+     * public IAVLNode predecessor (IAVLNode x)
+     * returns the item preceding x according to the sorted order of keys.
+     * If x has the smallest key - returns null.
+     * Complexity (for AVL): O(logn), O(1) amortized over a full walk
+     */
+    public IAVLNode predecessor(IAVLNode x) {
+        if (x.getLeft().isRealNode()) {
+            return this.maxSubtree(x.getLeft());
+        }
+        IAVLNode y = x.getParent();
+        while (y != null && x == y.getLeft()) {
+            x = y;
+            y = x.getParent();
+        }
+        return y;
+    }
+
+    /**
+     * public IAVLNode floor(int k)
+     * Returns the node with the largest key <= k, or null if there is none.
+     * Complexity: O(logn)
+     */
+    public IAVLNode floor(int k) {
+        IAVLNode n = getRoot();
+        IAVLNode candidate = null;
+        while (n != null && n.isRealNode()) {
+            if (n.getKey() == k) return n;
+            if (n.getKey() < k) {
+                candidate = n; // maybe there's a bigger one on the right
+                n = n.getRight();
+            } else {
+                n = n.getLeft();
+            }
+        }
+        return candidate;
+    }
+
+    /**
+     * public IAVLNode ceiling(int k)
+     * Returns the node with the smallest key >= k, or null if there is none.
+     * Complexity: O(logn)
+     */
+    public IAVLNode ceiling(int k) {
+        IAVLNode n = getRoot();
+        IAVLNode candidate = null;
+        while (n != null && n.isRealNode()) {
+            if (n.getKey() == k) return n;
+            if (n.getKey() > k) {
+                candidate = n; // maybe there's a smaller one on the left
+                n = n.getLeft();
+            } else {
+                n = n.getRight();
+            }
+        }
+        return candidate;
+    }
+
+    /**
+     * public IAVLNode lower(int k)
+     * Returns the node with the largest key < k, or null if there is none.
+     * Complexity: O(logn)
+     */
+    public IAVLNode lower(int k) {
+        return k == Integer.MIN_VALUE ? null : floor(k - 1);
+    }
+
+    /**
+     * public IAVLNode higher(int k)
+     * Returns the node with the smallest key > k, or null if there is none.
+     * Complexity: O(logn)
+     */
+    public IAVLNode higher(int k) {
+        return k == Integer.MAX_VALUE ? null : ceiling(k + 1);
+    }
+
+    /**
+     * public Iterable<IAVLNode> rangeScan(int lo, int hi)
+     * Returns the nodes with lo <= key <= hi in key order.
+     * Lazy - each iterator finds ceiling(lo) and then follows successor() until it passes hi,
+     * so nothing is materialized and a scan costs O(logn + number of results).
+     * The iterators are invalidated by any structural change of the tree.
+     * Complexity: O(1), O(logn + k) for a full iteration
+     */
+    public Iterable<IAVLNode> rangeScan(int lo, int hi) {
+        return () -> new Iterator<IAVLNode>() {
+            private IAVLNode next = lo <= hi ? ceiling(lo) : null;
+
+            @Override
+            public boolean hasNext() {
+                return next != null && next.getKey() <= hi;
+            }
+
+            @Override
+            public IAVLNode next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                IAVLNode n = next;
+                next = successor(n);
+                return n;
+            }
+        };
+    }
+
+    /**
+     * public Spliterator<IAVLNode> spliterator()
+     * Returns a spliterator over the nodes of the tree in key order, see NodeSpliterator.
+     * It is invalidated by any structural change of the tree.
+     * Complexity: O(1)
+     */
+    public Spliterator<IAVLNode> spliterator() {
+        return new NodeSpliterator(0, size());
+    }
+
+    /**
+     * public Stream<IAVLNode> stream()
+     * Returns a sequential stream of the nodes of the tree in key order, without copying them.
+     * Complexity: O(1), O(n) for a full traversal
+     */
+    public Stream<IAVLNode> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * public Stream<IAVLNode> parallelStream()
+     * Returns a parallel stream of the nodes of the tree in key order, without copying them.
+     * Complexity: O(1), O(n) work for a full traversal
+     */
+    public Stream<IAVLNode> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * private class NodeSpliterator
+     * The nodes of ranks [lo, hi) of the tree. trySplit halves the rank range in O(1) - the size field makes the
+     * ranks of every subtree known, so the halves are exact (SIZED | SUBSIZED) and no node is touched while splitting.
+     * A spliterator finds its first node with selectNode (O(logn)) when its traversal starts, and then follows
+     * successor() - O(1) amortized per node.
+     */
+    private class NodeSpliterator implements Spliterator<IAVLNode> {
+        private int lo;
+        private final int hi;
+        private IAVLNode next; // the node of rank lo, or null if it wasn't looked up yet
+
+        NodeSpliterator(int lo, int hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super IAVLNode> action) {
+            if (lo >= hi) return false;
+            IAVLNode n = next == null ? selectNode(lo) : next;
+            lo++;
+            next = lo < hi ? successor(n) : null;
+            action.accept(n);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super IAVLNode> action) {
+            if (lo >= hi) return;
+            IAVLNode n = next == null ? selectNode(lo) : next;
+            int remaining = hi - lo;
+            lo = hi;
+            next = null;
+            for (; remaining > 1; remaining--) {
+                IAVLNode current = n;
+                n = successor(n);
+                action.accept(current);
+            }
+            action.accept(n);
+        }
+
+        @Override
+        public Spliterator<IAVLNode> trySplit() {
+            if (next != null) return null; // already traversing
+            int mid = (lo + hi) >>> 1;
+            if (mid <= lo) return null;
+            Spliterator<IAVLNode> prefix = new NodeSpliterator(lo, mid);
+            lo = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return hi - lo;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SORTED | DISTINCT | NONNULL | SIZED | SUBSIZED;
+        }
+
+        @Override
+        public Comparator<? super IAVLNode> getComparator() {
+            return Comparator.comparingInt(IAVLNode::getKey);
+        }
+    }
+
     /**
      * public IAVLNode minSubtree(IAVLNode x)
      * returns the IAVLNode with minimum value of x's subtree
      * Complexity (for AVL): O(logn)
      */
     public IAVLNode minSubtree(IAVLNode x) {
-        while (!x.getLeft().isRealNode()) {
+        while (x.getLeft().isRealNode()) {
             x = x.getLeft();
         }
         return x;
     }
 
+    /**
+     * public IAVLNode maxSubtree(IAVLNode x)
+     * returns the IAVLNode with maximum value of x's subtree
+     * Complexity (for AVL): O(logn)
+     */
+    public IAVLNode maxSubtree(IAVLNode x) {
+        while (x.getRight().isRealNode()) {
+            x = x.getRight();
+        }
+        return x;
+    }
+
     /**
      * public String min()
      * Returns the info of the item with the smallest key in the tree,
@@ -355,14 +1025,14 @@ public class AVLTree {
      * public int[] keysToArray()
      * Returns a sorted array which contains all keys in the tree,
      * or an empty array if the tree is empty.
-     * Complexity: O(n)
+     * Walks the tree with successor(), so no intermediate list is built.
+     * Complexity: O(n) time, O(1) extra space
      */
     public int[] keysToArray() {
         int[] arr = new int[this.size()];
-        ListIterator<IAVLNode> listIterator = inOrderTraversal(getRoot()).listIterator();
+        if (this.empty()) return arr;
         int i = 0;
-        while (listIterator.hasNext()) {
-            IAVLNode n = listIterator.next();
+        for (IAVLNode n = minSubtree(getRoot()); n != null; n = successor(n)) {
             arr[i] = n.getKey();
             i++;
         }
@@ -375,20 +1045,29 @@ public class AVLTree {
      * Returns an array which contains all info in the tree,
      * sorted by their respective keys,
      * or an empty array if the tree is empty.
-     * Complexity: O(n)
+     * Walks the tree with successor(), so no intermediate list is built.
+     * Complexity: O(n) time, O(1) extra space
      */
     public String[] infoToArray() {
         String[] arr = new String[this.size()];
-        ListIterator<IAVLNode> listIterator = inOrderTraversal(getRoot()).listIterator();
+        if (this.empty()) return arr;
         int i = 0;
-        while (listIterator.hasNext()) {
-            IAVLNode n = listIterator.next();
+        for (IAVLNode n = minSubtree(getRoot()); n != null; n = successor(n)) {
             arr[i] = n.getValue();
             i++;
         }
         return arr;
     }
 
+    /**
+     * public Cursor cursor()
+     * Returns a new cursor over this tree, not positioned on any node yet.
+     * Complexity: O(1)
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
     /**
      * public int size()
      * Returns the number of nodes in the tree.
@@ -401,6 +1080,129 @@ public class AVLTree {
         return this.root.getSize();
     }
 
+    /**
+     * public int select(int i)
+     * Returns the i-th smallest key in the tree (0-based, so select(i) == keysToArray()[i]),
+     * or -1 if i is out of range.
+     * Complexity: O(logn)
+     */
+    public int select(int i) {
+        IAVLNode n = selectNode(i);
+        return n == null ? -1 : n.getKey();
+    }
+
+    /**
+     * public IAVLNode selectNode(int i)
+     * Returns the node holding the i-th smallest key (0-based), or null if i is out of range.
+     * Descends by the size field: if the left subtree holds more than i nodes the answer is there,
+     * otherwise skip it and the current node.
+     * Complexity: O(logn)
+     */
+    public IAVLNode selectNode(int i) {
+        if (i < 0 || i >= size()) return null;
+        IAVLNode n = getRoot();
+        while (n.isRealNode()) {
+            int leftSize = n.getLeft().getSize();
+            if (i < leftSize) {
+                n = n.getLeft();
+            } else if (i == leftSize) {
+                return n;
+            } else {
+                i -= leftSize + 1;
+                n = n.getRight();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * public int rank(int k)
+     * Returns the number of keys in the tree which are smaller than k.
+     * Complexity: O(logn)
+     */
+    public int rank(int k) {
+        int r = 0;
+        IAVLNode n = getRoot();
+        while (n != null && n.isRealNode()) {
+            if (n.getKey() < k) {
+                r += n.getLeft().getSize() + 1; // n and all of its left subtree are smaller
+                n = n.getRight();
+            } else {
+                n = n.getLeft();
+            }
+        }
+        return r;
+    }
+
+    /**
+     * public int countRange(int lo, int hi)
+     * Returns the number of keys k in the tree with lo <= k <= hi (0 if lo > hi).
+     * Complexity: O(logn)
+     */
+    public int countRange(int lo, int hi) {
+        if (lo > hi) return 0;
+        int atMostHi = hi == Integer.MAX_VALUE ? size() : rank(hi + 1);
+        return atMostHi - rank(lo);
+    }
+
+    /**
+     * public long aggregate()
+     * Returns the aggregate of all items in the tree, in key order (the identity for an empty tree).
+     * Throws IllegalStateException if the tree was created without an aggregator.
+     * Complexity: O(1)
+     */
+    public long aggregate() {
+        requireAggregator();
+        return empty() ? aggregator.identity() : aggregateOf(getRoot());
+    }
+
+    /**
+     * public long rangeAggregate(int lo, int hi)
+     * Returns the aggregate of the items with lo <= key <= hi, in key order (the identity if there are none).
+     * Finds the highest node in the range, then walks down towards lo and towards hi combining whole
+     * subtrees which are inside the range, so only O(logn) aggregates are combined.
+     * Throws IllegalStateException if the tree was created without an aggregator.
+     * Complexity: O(logn)
+     */
+    public long rangeAggregate(int lo, int hi) {
+        requireAggregator();
+        long identity = aggregator.identity();
+        if (lo > hi || empty()) return identity;
+        IAVLNode top = getRoot();
+        while (top.isRealNode() && (top.getKey() < lo || top.getKey() > hi)) {
+            top = top.getKey() < lo ? top.getRight() : top.getLeft();
+        }
+        if (!top.isRealNode()) return identity;
+        long left = identity; // aggregate of the items in [lo, top.key) - collected from right to left
+        IAVLNode x = top.getLeft();
+        while (x.isRealNode()) {
+            if (x.getKey() >= lo) {
+                long xAndRight = aggregator.combine(aggregator.lift(x.getKey(), x.getValue()), aggregateOf(x.getRight()));
+                left = aggregator.combine(xAndRight, left);
+                x = x.getLeft();
+            } else {
+                x = x.getRight();
+            }
+        }
+        long right = identity; // aggregate of the items in (top.key, hi] - collected from left to right
+        x = top.getRight();
+        while (x.isRealNode()) {
+            if (x.getKey() <= hi) {
+                long leftAndX = aggregator.combine(aggregateOf(x.getLeft()), aggregator.lift(x.getKey(), x.getValue()));
+                right = aggregator.combine(right, leftAndX);
+                x = x.getRight();
+            } else {
+                x = x.getLeft();
+            }
+        }
+        long withTop = aggregator.combine(left, aggregator.lift(top.getKey(), top.getValue()));
+        return aggregator.combine(withTop, right);
+    }
+
+    private void requireAggregator() {
+        if (aggregator == null) throw new IllegalStateException("the tree keeps no aggregates");
+    }
+
     /**
      * public int getRoot()
      * Returns the root AVL node, or null if the tree is empty
@@ -427,6 +1229,65 @@ public class AVLTree {
         return "Tree root: " + (root != null ? root.getValue() : "EMPTY");
     }
 
+    /**
+     * public static AVLTree fromSorted(int[] keys, String[] infos)
+     * Builds a balanced tree holding keys[i] -> infos[i] in one bottom-up pass, without any rebalancing.
+     * precondition: keys is strictly increasing and keys.length == infos.length
+     * Throws IllegalArgumentException if the precondition doesn't hold.
+     * Complexity: O(n)
+     */
+    public static AVLTree fromSorted(int[] keys, String[] infos) {
+        if (keys.length != infos.length)
+            throw new IllegalArgumentException("got " + keys.length + " keys but " + infos.length + " infos");
+        return fromSorted(keys.length, Arrays.stream(keys).iterator(), Arrays.asList(infos).iterator());
+    }
+
+    /**
+     * public static AVLTree fromSorted(int n, PrimitiveIterator.OfInt keys, Iterator<String> infos)
+     * Builds a balanced tree from the first n items of two parallel iterators, in one bottom-up pass.
+     * Nodes are created in key order, so the input is streamed and never buffered.
+     * precondition: keys yields n strictly increasing keys, infos yields n infos
+     * Throws IllegalArgumentException if the precondition doesn't hold.
+     * Complexity: O(n)
+     */
+    public static AVLTree fromSorted(int n, PrimitiveIterator.OfInt keys, Iterator<String> infos) {
+        AVLTree t = new AVLTree();
+        if (n <= 0) return t;
+        IAVLNode root = t.buildSorted(n, keys, infos, new long[]{Long.MIN_VALUE});
+        root.setParent(null);
+        t.setRoot(root);
+        t.nodes = n;
+        return t;
+    }
+
+    /**
+     * private IAVLNode buildSorted(int n, PrimitiveIterator.OfInt keys, Iterator<String> infos, long[] lastKey)
+     * Builds a perfectly balanced subtree of the next n items - the left half, then the middle node, then the right half.
+     * Subtree sizes differ by at most 1, so heights differ by at most 1 as well.
+     * lastKey holds the previously consumed key, to verify the input is sorted.
+     * Complexity: O(n), recursion depth O(logn)
+     */
+    private IAVLNode buildSorted(int n, PrimitiveIterator.OfInt keys, Iterator<String> infos, long[] lastKey) {
+        if (n == 0) return this.externalLeaf;
+        int leftSize = (n - 1) / 2;
+        IAVLNode left = buildSorted(leftSize, keys, infos, lastKey);
+        if (!keys.hasNext() || !infos.hasNext())
+            throw new IllegalArgumentException("input ended before all items were read");
+        int k = keys.nextInt();
+        if (k <= lastKey[0])
+            throw new IllegalArgumentException("keys must be strictly increasing, got " + k + " after " + lastKey[0]);
+        lastKey[0] = k;
+        IAVLNode x = createNewNode(k, infos.next());
+        IAVLNode right = buildSorted(n - 1 - leftSize, keys, infos, lastKey);
+        x.setLeft(left);
+        x.setRight(right);
+        if (left.isRealNode()) left.setParent(x);
+        if (right.isRealNode()) right.setParent(x);
+        updateHeight(x);
+        updateNodeSize(x);
+        return x;
+    }
+
     /**
      * public AVLTree toTree (IAVLNode root)
      * Create a new tree from given node x and sets x to be its root
@@ -440,7 +1301,7 @@ public class AVLTree {
         if (x.isRealNode()) {
             t.setRoot(x);
         }
-        x.setParent(null);
+        if (x.isRealNode()) x.setParent(null);
         return t;
     }
 
@@ -454,9 +1315,10 @@ public class AVLTree {
      */
     public AVLTree[] split(int x) {
         // tree shouldn't be used after this: https://moodle.tau.ac.il/mod/forum/discuss.php?d=39446
-        IAVLNode n = search(getRoot(), x); // get the node with key x
-        AVLTree small = toTree(n.getLeft());
-        AVLTree big = toTree(n.getRight());
+        IAVLNode n = findNode(x); // get the node with key x
+        clearSearchCache(); // its items move to the new trees
+        AVLTree small = subtree(n.getLeft());
+        AVLTree big = subtree(n.getRight());
         // node sizes unchanged
 
         IAVLNode parent = n.getParent();
@@ -465,10 +1327,10 @@ public class AVLTree {
             IAVLNode replacer = createNewNode(parent.getKey(), parent.getValue());
             if (parent.getKey() > n.getKey()) {
                 // current node is left child => smaller than parent => we want to join with big
-                big.join(replacer, toTree(parent.getRight()));
+                big.join(replacer, subtree(parent.getRight()));
             } else {
                 // current node is right child => bigger than parent => we want to join with small
-                small.join(replacer, toTree(parent.getLeft()));
+                small.join(replacer, subtree(parent.getLeft()));
             }
             updateHeight(replacer);
             updateNodeSize(replacer);
@@ -477,6 +1339,28 @@ public class AVLTree {
         return new AVLTree[]{small, big};
     }
 
+    /**
+     * private AVLTree subtree(IAVLNode x)
+     * toTree(x), with this tree's aggregator - the subtree's aggregates stay valid.
+     * Complexity: O(1)
+     */
+    private AVLTree subtree(IAVLNode x) {
+        AVLTree t = toTree(x);
+        t.aggregator = this.aggregator;
+        return t;
+    }
+
+    /**
+     * private void requireSameAggregator(AVLTree t)
+     * Throws IllegalArgumentException if t keeps other aggregates than this tree (see Aggregator):
+     * its nodes would be adopted with aggregates this tree doesn't combine.
+     * Complexity: O(1)
+     */
+    private void requireSameAggregator(AVLTree t) {
+        if (t.aggregator != this.aggregator)
+            throw new IllegalArgumentException("the trees must use the same aggregator");
+    }
+
     /**
      * public join(IAVLNode x, AVLTree t)
      * joins t and x with the tree.
@@ -486,16 +1370,19 @@ public class AVLTree {
      * Complexity: O(logn)
      */
     public int join(IAVLNode x, AVLTree t) {
+        requireSameAggregator(t);
+        moveFinger(finger); // the keys of t may fall next to it
+        t.clearSearchCache(); // this tree's cached items stay valid - join only adds keys to it
         if (t.empty()) {
             int rank = this.getRank();
-            this.insert(x.getKey(), x.getValue());
+            this.insertKey(x.getKey(), x.getValue()); // not an operation of its own for metrics
             return rank + 1;
         }
         if (this.empty()) {
             this.setRoot(t.getRoot());
             int rank = this.getRank();
             this.nodes = t.size();
-            this.insert(x.getKey(), x.getValue());
+            this.insertKey(x.getKey(), x.getValue()); // not an operation of its own for metrics
             return rank + 1;
         }
         int rankDiff = this.getRank() - t.getRank();
@@ -515,7 +1402,9 @@ public class AVLTree {
         IAVLNode a, b, c, left, right;
         a = T1.getRoot();
         b = T2.getRoot();
+        c = null;
         while (b.getHeight() > a.getHeight()) {
+            c = b; // b may end up as an external leaf, so keep track of its parent ourselves
             if (biggerKeys > 0) {
                 // T1 (the smaller tree), has bigger keys, thus it should hang from the right
                 // so we are traveling the right spine
@@ -526,8 +1415,7 @@ public class AVLTree {
                 b = b.getLeft();
             }
         }
-        // we got b!
-        c = b.getParent();
+        // we got b! (and c is its parent)
 
         if (biggerKeys > 0) {
             right = a;
@@ -540,8 +1428,8 @@ public class AVLTree {
         x.setRight(right);
         x.setHeight(T1.getRank() + 1);
         updateNodeSize(x);
-        left.setParent(x);
-        right.setParent(x);
+        if (left.isRealNode()) left.setParent(x);
+        if (right.isRealNode()) right.setParent(x);
         x.setParent(c);
         if (c == null) {
             // x is new root, and tree is balanced
@@ -567,6 +1455,286 @@ public class AVLTree {
         return Math.abs(rankDiff) + 1;
     }
 
+    /**
+     * public void union(AVLTree t)
+     * Adds to the tree all items of t whose keys aren't in it (for a key in both trees, the info of this tree is kept,
+     * like insert does). t is emptied - its nodes are moved into this tree.
+     * Runs with split/join recursion on the common ForkJoinPool, see setOperation.
+     * Complexity: O(mlog(n/m + 1)) work and O(log^2(n)) depth, m = the size of the smaller tree
+     */
+    public void union(AVLTree t) {
+        union(t, ForkJoinPool.commonPool());
+    }
+
+    public void union(AVLTree t, ForkJoinPool pool) {
+        if (t != this) setOperation('U', t, pool);
+    }
+
+    /**
+     * public void intersection(AVLTree t)
+     * Keeps in the tree only the items whose keys are also in t. t is emptied.
+     * Complexity: O(mlog(n/m + 1)) work and O(log^2(n)) depth, m = the size of the smaller tree
+     */
+    public void intersection(AVLTree t) {
+        intersection(t, ForkJoinPool.commonPool());
+    }
+
+    public void intersection(AVLTree t, ForkJoinPool pool) {
+        if (t != this) setOperation('I', t, pool);
+    }
+
+    /**
+     * public void difference(AVLTree t)
+     * Removes from the tree all keys which are in t. t is emptied.
+     * Complexity: O(mlog(n/m + 1)) work and O(log^2(n)) depth, m = the size of the smaller tree
+     */
+    public void difference(AVLTree t) {
+        difference(t, ForkJoinPool.commonPool());
+    }
+
+    public void difference(AVLTree t, ForkJoinPool pool) {
+        if (t == this) {
+            this.setRoot(null);
+            this.nodes = 0;
+            moveFinger(null);
+            clearSearchCache();
+        } else {
+            setOperation('D', t, pool);
+        }
+    }
+
+    /**
+     * private void setOperation(char op, AVLTree t, ForkJoinPool pool)
+     * Replaces the tree with (this op t) - 'U' union, 'I' intersection, 'D' difference - and empties t.
+     * Complexity: O(mlog(n/m + 1)) work
+     */
+    private void setOperation(char op, AVLTree t, ForkJoinPool pool) {
+        requireSameAggregator(t);
+        IAVLNode a = this.empty() ? externalLeaf : getRoot();
+        IAVLNode b = t.empty() ? externalLeaf : t.getRoot();
+        IAVLNode result = pool.invoke(new SetOperation(op, a, b));
+        t.setRoot(null);
+        t.nodes = 0;
+        t.moveFinger(null);
+        t.clearSearchCache();
+        clearSearchCache();
+        replaceRoot(result); // the finger may have been dropped
+    }
+
+    /**
+     * private class SetOperation
+     * The ForkJoin task computing setOperation(op, a, b).
+     */
+    private class SetOperation extends RecursiveTask<IAVLNode> {
+        private static final long serialVersionUID = 1L; // RecursiveTask is Serializable; the tasks are never serialized
+        private final char op;
+        private final IAVLNode a;
+        private final IAVLNode b;
+
+        SetOperation(char op, IAVLNode a, IAVLNode b) {
+            this.op = op;
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        protected IAVLNode compute() {
+            return setOperation(op, a, b);
+        }
+    }
+
+    /**
+     * private IAVLNode setOperation(char op, IAVLNode a, IAVLNode b)
+     * The recursion of Blelloch et al., "Just Join for Parallel Ordered Sets": split one subtree by the root key
+     * of the other, solve the two sides independently (the left one forked when the subtrees are big enough
+     * to pay for a task) and join the results. Subtrees are consumed; the nodes of a are reused for the result.
+     * Must run inside a ForkJoinPool.
+     * Complexity: O(mlog(n/m + 1)) work
+     */
+    private IAVLNode setOperation(char op, IAVLNode a, IAVLNode b) {
+        if (!a.isRealNode()) return op == 'U' ? b : externalLeaf;
+        if (!b.isRealNode()) return op == 'I' ? externalLeaf : a;
+        boolean fork = a.getSize() + b.getSize() > PARALLEL_CUTOFF;
+        IAVLNode[] parts; // [left, node with the key or null, right]
+        IAVLNode leftA, rightA, leftB, rightB;
+        if (op == 'D') {
+            parts = splitNodes(a, b.getKey());
+            leftA = parts[0];
+            rightA = parts[2];
+            leftB = b.getLeft();
+            rightB = b.getRight();
+        } else {
+            parts = splitNodes(b, a.getKey());
+            leftA = a.getLeft();
+            rightA = a.getRight();
+            leftB = parts[0];
+            rightB = parts[2];
+        }
+        IAVLNode left, right;
+        if (fork) {
+            SetOperation task = new SetOperation(op, leftA, leftB);
+            task.fork();
+            right = setOperation(op, rightA, rightB);
+            left = task.join();
+        } else {
+            left = setOperation(op, leftA, leftB);
+            right = setOperation(op, rightA, rightB);
+        }
+        if (op == 'U' || (op == 'I' && parts[1] != null)) return joinNodes(left, a, right);
+        return joinNodes(left, right);
+    }
+
+    /**
+     * private IAVLNode[] splitNodes(IAVLNode n, int k)
+     * Splits the subtree of n into [keys < k, the node with key k or null, keys > k].
+     * The node with key k, if any, is detached and may be reused.
+     * Complexity: O(height(n))
+     */
+    private IAVLNode[] splitNodes(IAVLNode n, int k) {
+        if (!n.isRealNode()) return new IAVLNode[]{externalLeaf, null, externalLeaf};
+        IAVLNode left = n.getLeft();
+        IAVLNode right = n.getRight();
+        if (k == n.getKey()) return new IAVLNode[]{left, n, right};
+        IAVLNode[] parts;
+        if (k < n.getKey()) {
+            parts = splitNodes(left, k);
+            parts[2] = joinNodes(parts[2], n, right);
+        } else {
+            parts = splitNodes(right, k);
+            parts[0] = joinNodes(left, n, parts[0]);
+        }
+        return parts;
+    }
+
+    /**
+     * private IAVLNode joinNodes(IAVLNode l, IAVLNode x, IAVLNode r)
+     * Joins the subtrees l < x < r into one subtree, reusing x as a node, and returns its root:
+     * descends the spine of the higher subtree to the height of the other one, hangs x there and
+     * rebalances on the way back up. Unlike join it never touches the tree root, so it can run on
+     * disjoint subtrees concurrently.
+     * Complexity: O(|height(l) - height(r)| + 1)
+     */
+    private IAVLNode joinNodes(IAVLNode l, IAVLNode x, IAVLNode r) {
+        int hl = l.getHeight();
+        int hr = r.getHeight();
+        if (hl > hr + 1) {
+            l.setRight(joinNodes(l.getRight(), x, r));
+            return balanceNode(l);
+        }
+        if (hr > hl + 1) {
+            r.setLeft(joinNodes(l, x, r.getLeft()));
+            return balanceNode(r);
+        }
+        x.setLeft(l);
+        x.setRight(r);
+        if (linkChildren(x)) countBatchWork(1);
+        return x;
+    }
+
+    /**
+     * private IAVLNode joinNodes(IAVLNode l, IAVLNode r)
+     * Joins the subtrees l < r with no middle node - the largest node of l becomes the middle.
+     * Complexity: O(height(l) + height(r))
+     */
+    private IAVLNode joinNodes(IAVLNode l, IAVLNode r) {
+        if (!l.isRealNode()) return r;
+        if (!r.isRealNode()) return l;
+        IAVLNode[] parts = splitLast(l);
+        return joinNodes(parts[0], parts[1], r);
+    }
+
+    /**
+     * private IAVLNode[] splitLast(IAVLNode n)
+     * Detaches the largest node of the (real) subtree of n. Returns [the rest of the subtree, the largest node].
+     * Complexity: O(height(n))
+     */
+    private IAVLNode[] splitLast(IAVLNode n) {
+        if (!n.getRight().isRealNode()) return new IAVLNode[]{n.getLeft(), n};
+        IAVLNode left = n.getLeft();
+        IAVLNode[] parts = splitLast(n.getRight());
+        parts[0] = joinNodes(left, n, parts[0]);
+        return parts;
+    }
+
+    /**
+     * private IAVLNode balanceNode(IAVLNode n)
+     * Restores the balance of n, whose subtrees' heights may differ by up to 2, with a single or double rotation
+     * (as in rebalance) and returns the new root of the subtree. Doesn't touch n's parent.
+     * Complexity: O(1)
+     */
+    private IAVLNode balanceNode(IAVLNode n) {
+        if (linkChildren(n)) countBatchWork(1);
+        int balance = getBalance(n);
+        if (balance > 1) {
+            if (getBalance(n.getLeft()) < 0) {
+                countBatchWork(5);
+                n.setLeft(spinNode(n.getLeft(), 'L'));
+            } else {
+                countBatchWork(2);
+            }
+            return spinNode(n, 'R');
+        }
+        if (balance < -1) {
+            if (getBalance(n.getRight()) > 0) {
+                countBatchWork(5);
+                n.setRight(spinNode(n.getRight(), 'R'));
+            } else {
+                countBatchWork(2);
+            }
+            return spinNode(n, 'L');
+        }
+        return n;
+    }
+
+    /**
+     * private void countBatchWork(int units)
+     * Adds rebalancing units to the count of the running insertAll/deleteAll, if any - as rebalance counts them:
+     * 2 for a rotation, 5 for a double rotation, 1 for a height change outside a rotation.
+     * The other users of joinNodes (split, join, the set operations) don't count, so their concurrent tasks
+     * never write the field.
+     * Complexity: O(1)
+     */
+    private void countBatchWork(int units) {
+        if (batchWork >= 0) batchWork += units;
+    }
+
+    /**
+     * private IAVLNode spinNode(IAVLNode n, char type)
+     * rotate for a detached subtree: rotates n right ('R') or left ('L') and returns the new subtree root.
+     * Complexity: O(1)
+     */
+    private IAVLNode spinNode(IAVLNode n, char type) {
+        IAVLNode c;
+        if (type == 'R') {
+            c = n.getLeft();
+            n.setLeft(c.getRight());
+            c.setRight(n);
+        } else {
+            c = n.getRight();
+            n.setRight(c.getLeft());
+            c.setLeft(n);
+        }
+        linkChildren(n);
+        linkChildren(c);
+        return c;
+    }
+
+    /**
+     * private void linkChildren(IAVLNode n)
+     * Points the real children of n back at it, replaces missing children by this tree's external leaf
+     * and recomputes n's height and size. Returns true if n's height changed.
+     * Complexity: O(1)
+     */
+    private boolean linkChildren(IAVLNode n) {
+        if (n.getLeft().isRealNode()) n.getLeft().setParent(n);
+        else n.setLeft(externalLeaf);
+        if (n.getRight().isRealNode()) n.getRight().setParent(n);
+        else n.setRight(externalLeaf);
+        boolean changed = updateHeight(n);
+        updateNodeSize(n);
+        return changed;
+    }
+
     /**
      * public void setRoot (IAVLNode newRoot)
      * Set the tree root to be newRoot
@@ -587,7 +1755,9 @@ public class AVLTree {
         if (!n.isRealNode()) return false;
         int formerHeight = n.getHeight();
         n.setHeight(Math.max(n.getLeft().getHeight(), n.getRight().getHeight()) + 1);
-        return formerHeight != n.getHeight();
+        if (formerHeight == n.getHeight()) return false;
+        if (metrics != null) metrics.heightChange(); // only checked on an actual change, amortized O(1) per update
+        return true;
     }
 
     /**
@@ -636,7 +1806,7 @@ public class AVLTree {
 
         newRoot.setLeft(oldRoot);
         oldRoot.setRight(z);
-        z.setParent(oldRoot);
+        if (z.isRealNode()) z.setParent(oldRoot);
         updateParentsAfterRotation(newRoot, oldRoot);
 
         updateHeight(oldRoot);
@@ -656,7 +1826,7 @@ public class AVLTree {
 
         newRoot.setRight(oldRoot);
         oldRoot.setLeft(z);
-        z.setParent(oldRoot);
+        if (z.isRealNode()) z.setParent(oldRoot);
         updateParentsAfterRotation(newRoot, oldRoot);
 
         updateHeight(oldRoot);
@@ -678,7 +1848,8 @@ public class AVLTree {
 
     /**
      * public LinkedList<IAVLNode> inOrderTraversal(IAVLNode root)
-     * Recursive function, returns a linked list of in-order traversal of a subtree rooted in ``root``.
+     * Returns a linked list of in-order traversal of a subtree rooted in ``root``.
+     * Iterative - walks size(root) successors from the minimum of the subtree, so deep trees can't overflow the stack.
      * If tree is empty - returns empty list.
      * Complexity: O(n)
      */
@@ -688,9 +1859,11 @@ public class AVLTree {
             return list; //return empty list
         if (!root.isRealNode())
             return list; // reached externl leaf
-        list.addAll(inOrderTraversal(root.getLeft())); // add all = O(1)
-        list.add(root); // O(1)
-        list.addAll(inOrderTraversal(root.getRight())); // add all = O(1)
+        IAVLNode n = minSubtree(root);
+        for (int i = root.getSize(); i > 0; i--) {
+            list.add(n); // O(1)
+            n = successor(n);
+        }
         return list;
     }
 
@@ -702,6 +1875,206 @@ public class AVLTree {
     public void updateNodeSize(IAVLNode node) {
         if (node != null && node.isRealNode()) {
             node.setSize(node.getLeft().getSize() + node.getRight().getSize() + 1);
+            if (aggregator != null) {
+                long value = aggregator.combine(aggregateOf(node.getLeft()), aggregator.lift(node.getKey(), node.getValue()));
+                ((AVLNode) node).aggregate = aggregator.combine(value, aggregateOf(node.getRight()));
+            }
+        }
+    }
+
+    /**
+     * private long aggregateOf(IAVLNode n)
+     * Returns the aggregate of the subtree of n - the identity for an external leaf.
+     * Complexity: O(1)
+     */
+    private long aggregateOf(IAVLNode n) {
+        return n.isRealNode() ? ((AVLNode) n).aggregate : aggregator.identity();
+    }
+
+    /**
+     * public class Cursor
+     * A position in the in-order sequence of the tree, moved with first/last/next/prev/seek.
+     * Moves follow parent pointers, so a cursor allocates nothing after it's created.
+     * A cursor is invalidated by any structural change of the tree (insert/delete/split/join).
+     */
+    public class Cursor {
+
+        private IAVLNode current;
+
+        /**
+         * public boolean first()
+         * Positions the cursor on the smallest key.
+         * Returns false if the tree is empty.
+         * Complexity: O(logn)
+         */
+        public boolean first() {
+            current = empty() ? null : minSubtree(getRoot());
+            return current != null;
+        }
+
+        /**
+         * public boolean last()
+         * Positions the cursor on the largest key.
+         * Returns false if the tree is empty.
+         * Complexity: O(logn)
+         */
+        public boolean last() {
+            current = empty() ? null : maxSubtree(getRoot());
+            return current != null;
+        }
+
+        /**
+         * public boolean next()
+         * Moves the cursor to the following key.
+         * Returns false (and invalidates the cursor) if there is none.
+         * Complexity: O(logn), O(1) amortized over a full walk
+         */
+        public boolean next() {
+            if (current != null) current = successor(current);
+            return current != null;
+        }
+
+        /**
+         * public boolean prev()
+         * Moves the cursor to the preceding key.
+         * Returns false (and invalidates the cursor) if there is none.
+         * Complexity: O(logn), O(1) amortized over a full walk
+         */
+        public boolean prev() {
+            if (current != null) current = predecessor(current);
+            return current != null;
+        }
+
+        /**
+         * public boolean seek(int k)
+         * Positions the cursor on the smallest key which is >= k.
+         * Returns false if all keys are smaller than k.
+         * Complexity: O(logn)
+         */
+        public boolean seek(int k) {
+            current = ceiling(k);
+            return current != null;
+        }
+
+        /**
+         * public boolean isValid()
+         * Returns true iff the cursor is positioned on a node.
+         * Complexity: O(1)
+         */
+        public boolean isValid() {
+            return current != null;
+        }
+
+        /**
+         * public int getKey()
+         * Returns the key under the cursor, or -1 if the cursor isn't valid.
+         * Complexity: O(1)
+         */
+        public int getKey() {
+            return current == null ? -1 : current.getKey();
+        }
+
+        /**
+         * public String getValue()
+         * Returns the info under the cursor, or null if the cursor isn't valid.
+         * Complexity: O(1)
+         */
+        public String getValue() {
+            return current == null ? null : current.getValue();
+        }
+
+        /**
+         * public IAVLNode getNode()
+         * Returns the node under the cursor, or null if the cursor isn't valid.
+         * Complexity: O(1)
+         */
+        public IAVLNode getNode() {
+            return current;
+        }
+    }
+
+    /**
+     * public interface Aggregator
+     * An associative operation (a monoid) over long values, whose aggregate is kept for every subtree.
+     * lift maps an item to a value; combine must be associative with identity() as its neutral element,
+     * but needn't be commutative - values are always combined in key order.
+     * Aggregates are recomputed wherever sizes are (updateNodeSize), so they survive insert, delete,
+     * rotations, join and split. Trees which are joined (join, union, intersection, difference) must use the same
+     * aggregator instance, or IllegalArgumentException is thrown - sumOfKeys() always returns the same one.
+     */
+    public interface Aggregator {
+        long identity();
+
+        long lift(int key, String info);
+
+        long combine(long a, long b);
+
+        /**
+         * static Aggregator sumOfKeys()
+         * Sum of the keys. Always the same instance, so trees created with it can be joined.
+         */
+        static Aggregator sumOfKeys() {
+            return SUM_OF_KEYS;
+        }
+
+        /**
+         * static Aggregator sumOf(ToLongFunction<String> value)
+         * Sum of a numeric value derived from the info.
+         */
+        static Aggregator sumOf(ToLongFunction<String> value) {
+            return new Aggregator() {
+                public long identity() {
+                    return 0;
+                }
+
+                public long lift(int key, String info) {
+                    return value.applyAsLong(info);
+                }
+
+                public long combine(long a, long b) {
+                    return a + b;
+                }
+            };
+        }
+
+        /**
+         * static Aggregator maxOf(ToLongFunction<String> value)
+         * Maximum of a numeric value derived from the info (Long.MIN_VALUE for no items).
+         */
+        static Aggregator maxOf(ToLongFunction<String> value) {
+            return new Aggregator() {
+                public long identity() {
+                    return Long.MIN_VALUE;
+                }
+
+                public long lift(int key, String info) {
+                    return value.applyAsLong(info);
+                }
+
+                public long combine(long a, long b) {
+                    return Math.max(a, b);
+                }
+            };
+        }
+
+        /**
+         * static Aggregator minOf(ToLongFunction<String> value)
+         * Minimum of a numeric value derived from the info (Long.MAX_VALUE for no items).
+         */
+        static Aggregator minOf(ToLongFunction<String> value) {
+            return new Aggregator() {
+                public long identity() {
+                    return Long.MAX_VALUE;
+                }
+
+                public long lift(int key, String info) {
+                    return value.applyAsLong(info);
+                }
+
+                public long combine(long a, long b) {
+                    return Math.min(a, b);
+                }
+            };
         }
     }
 
@@ -746,7 +2119,7 @@ public class AVLTree {
     /**
      * public class AVLNode
      */
-    public class AVLNode implements IAVLNode {
+    public final class AVLNode implements IAVLNode {
 
         private String info;
         private int key;
@@ -757,7 +2130,8 @@ public class AVLTree {
         private AVLNode right;
         private AVLNode parent;
 
-        private boolean isExternal;
+        private final boolean isExternal;
+        private long aggregate; // of the subtree, kept only if the tree has an Aggregator
 
         /**
          * public AVLNode(String info, int key)
@@ -772,12 +2146,28 @@ public class AVLTree {
 
         }
 
+        /**
+         * private AVLNode()
+         * Creates an external leaf: key -1, no info, height -1, size 0 and no children or parent.
+         * External leaves are immutable - all setters are no-ops - so the one leaf a tree shares between all of its
+         * nodes is never written, and readers running alongside a writer never race on it.
+         * Complexity: O(1)
+         */
+        private AVLNode() {
+            this.info = null;
+            this.key = -1;
+            this.isExternal = true;
+            this.height = -1;
+            this.size = 0;
+        }
+
         /**
          * public void setInfo(String info)
          * Receives String info and sets the instance's 'info' field to it.
          * Complexity: O(1)
          */
         public void setInfo(String info) {
+            if (isExternal) return;
             this.info = info;
         }
 
@@ -787,6 +2177,7 @@ public class AVLTree {
          * Complexity: O(1)
          */
         public void setKey(int key) {
+            if (isExternal) return;
             this.key = key;
         }
 
@@ -799,15 +2190,6 @@ public class AVLTree {
             return this.key + ": " + this.info;
         }
 
-        /**
-         * public void setIsExternal (boolean b)
-         * Receives boolean b and sets the instance's 'isExternal' field to it.
-         * Complexity: O(1)
-         */
-        public void setIsExternal(boolean b) {
-            this.isExternal = b;
-        }
-
         /**
          * public int getKey()
          * Returns the `key` value
@@ -832,6 +2214,7 @@ public class AVLTree {
          * Complexity: O(1)
          */
         public void setLeft(IAVLNode node) {
+            if (isExternal) return;
             this.left = (AVLNode) node;
         }
 
@@ -850,7 +2233,7 @@ public class AVLTree {
          * Complexity: O(1)
          */
         public void setRight(IAVLNode node) {
-            //TODO: think about setting height, etc
+            if (isExternal) return;
             this.right = (AVLNode) node;
         }
 
@@ -869,7 +2252,7 @@ public class AVLTree {
          * Complexity: O(1)
          */
         public void setParent(IAVLNode node) {
-            if (node == this) {
+            if (node == this || isExternal) {
                 return; // don't do anything stupid
             }
             this.parent = (AVLNode) node;
@@ -899,6 +2282,7 @@ public class AVLTree {
          * Complexity: O(1)
          */
         public void setHeight(int height) {
+            if (isExternal) return;
             this.height = height;
         }
 
@@ -926,9 +2310,19 @@ public class AVLTree {
          * Complexity: O(1)
          */
         public void setSize(int s) {
+            if (isExternal) return;
             this.size = s;
         }
 
+        /**
+         * public long getAggregate()
+         * Returns the aggregate of the subtree of this node (see Aggregator)
+         * Complexity: O(1)
+         */
+        public long getAggregate() {
+            return this.aggregate;
+        }
+
 
     }
 
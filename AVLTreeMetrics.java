@@ -0,0 +1,224 @@
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AVLTreeMetrics
+ * <p>
+ * Operational metrics of an AVLTree, enabled with AVLTree.setMetrics (a tree without metrics only pays a null check).
+ * Records, per operation (insert, delete, search - the finger variants included), a latency histogram and a
+ * histogram of the length of the path its descent walked, and counts rotations by case (LL/LR/RL/RR, as in
+ * AVLTree.rebalance) and node height changes, where they happen. Also exposes the tree height after the last
+ * recorded operation.
+ * <p>
+ * Written by the thread using the tree, and safe to read from any other thread (e.g. a metrics exporter).
+ * Several trees used by the same thread may share one instance, which then aggregates all of them.
+ */
+public final class AVLTreeMetrics {
+
+    public enum Operation {
+        INSERT, DELETE, SEARCH
+    }
+
+    public enum Rotation {
+        LL, LR, RL, RR
+    }
+
+    private final Map<Operation, Histogram> latency = new EnumMap<>(Operation.class);
+    private final Map<Operation, Histogram> pathLength = new EnumMap<>(Operation.class);
+    private final Map<Rotation, LongAdder> rotations = new EnumMap<>(Rotation.class);
+    private final LongAdder heightChanges = new LongAdder();
+    private volatile int treeHeight = -1;
+
+    public AVLTreeMetrics() {
+        for (Operation op : Operation.values()) {
+            latency.put(op, new Histogram());
+            pathLength.put(op, new Histogram());
+        }
+        for (Rotation r : Rotation.values()) rotations.put(r, new LongAdder());
+    }
+
+    /**
+     * long start()
+     * Called by AVLTree when an operation starts. Returns the start time, from System.nanoTime().
+     * Complexity: O(1)
+     */
+    long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * void rotation(Rotation type)
+     * Called by AVLTree.rebalance for every (single or double) rotation.
+     * Complexity: O(1)
+     */
+    void rotation(Rotation type) {
+        rotations.get(type).increment();
+    }
+
+    /**
+     * void heightChange()
+     * Called by AVLTree whenever the height of a node actually changes (rotations included).
+     * Complexity: O(1)
+     */
+    void heightChange() {
+        heightChanges.increment();
+    }
+
+    /**
+     * void record(Operation op, long nanos, int path, int height)
+     * Called by AVLTree after an operation: its latency, the number of nodes its descent visited and the new
+     * tree height.
+     * Complexity: O(1)
+     */
+    void record(Operation op, long nanos, int path, int height) {
+        latency.get(op).record(nanos);
+        pathLength.get(op).record(path);
+        treeHeight = height;
+    }
+
+    /**
+     * public Histogram latency(Operation op)
+     * Returns the histogram of the latencies of op, in nanoseconds.
+     * Complexity: O(1)
+     */
+    public Histogram latency(Operation op) {
+        return latency.get(op);
+    }
+
+    /**
+     * public Histogram pathLength(Operation op)
+     * Returns the histogram of the number of nodes op's descent visited, counted while it walked (from the root,
+     * or from the finger for the finger variants) - before any rotation. A search answered by the search cache
+     * walks 0 nodes.
+     * Complexity: O(1)
+     */
+    public Histogram pathLength(Operation op) {
+        return pathLength.get(op);
+    }
+
+    /**
+     * public long rotations(Rotation type)
+     * Returns the number of rotations of the given case.
+     * Complexity: O(1)
+     */
+    public long rotations(Rotation type) {
+        return rotations.get(type).sum();
+    }
+
+    /**
+     * public long heightChanges()
+     * Returns the number of times a node's height changed while metrics were enabled - by inserts, deletes and
+     * their rotations, and by the rebalancing inside join, split and the batch operations.
+     * Complexity: O(1)
+     */
+    public long heightChanges() {
+        return heightChanges.sum();
+    }
+
+    /**
+     * public int treeHeight()
+     * Returns the height of the tree after the last recorded operation (-1 if it was empty or nothing was recorded).
+     * Complexity: O(1)
+     */
+    public int treeHeight() {
+        return treeHeight;
+    }
+
+    /**
+     * public String toString()
+     * A human readable report of all metrics.
+     * Complexity: O(number of histogram buckets)
+     */
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Operation op : Operation.values()) {
+            sb.append(op).append(" latency(ns) ").append(latency(op))
+                    .append(", path ").append(pathLength(op)).append('\n');
+        }
+        for (Rotation r : Rotation.values()) sb.append(r).append('=').append(rotations(r)).append(' ');
+        sb.append("heightChanges=").append(heightChanges()).append(" treeHeight=").append(treeHeight());
+        return sb.toString();
+    }
+
+    /**
+     * public static final class Histogram
+     * A log-linear histogram of non-negative longs, in the style of HdrHistogram: values below 2^SUB_BITS are
+     * counted exactly, and every larger power-of-two range [2^e, 2^(e+1)) is split into 2^SUB_BITS equal
+     * buckets - so any value is reported within 1/32 (about 3%) of its true value, with a fixed 15KB footprint.
+     */
+    public static final class Histogram {
+        private static final int SUB_BITS = 5;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+        private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_COUNT;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private volatile long max = 0;
+
+        /**
+         * public void record(long value)
+         * Adds a value (negative values are counted as 0).
+         * Complexity: O(1)
+         */
+        public void record(long value) {
+            value = Math.max(0, value);
+            counts.incrementAndGet(bucket(value));
+            count.increment();
+            sum.add(value);
+            if (value > max) max = value;
+        }
+
+        private static int bucket(long value) {
+            if (value < SUB_COUNT) return (int) value;
+            int exponent = 63 - Long.numberOfLeadingZeros(value); // >= SUB_BITS
+            int shift = exponent - SUB_BITS;
+            return (shift + 1) * SUB_COUNT + (int) (value >>> shift) - SUB_COUNT;
+        }
+
+        private static long highestValueIn(int bucket) {
+            if (bucket < SUB_COUNT) return bucket;
+            int shift = bucket / SUB_COUNT - 1;
+            long top = SUB_COUNT + bucket % SUB_COUNT;
+            return ((top + 1) << shift) - 1;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            long n = count.sum();
+            return n == 0 ? 0 : (double) sum.sum() / n;
+        }
+
+        /**
+         * public long valueAtPercentile(double percentile)
+         * Returns the value below which percentile% of the recorded values fall (the highest value of
+         * the bucket holding that rank, capped by the maximum), or 0 if nothing was recorded.
+         * Complexity: O(number of buckets)
+         */
+        public long valueAtPercentile(double percentile) {
+            long n = count.sum();
+            if (n == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+            long seen = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                seen += counts.get(b);
+                if (seen >= rank) return Math.min(highestValueIn(b), max);
+            }
+            return max;
+        }
+
+        public String toString() {
+            return String.format("count=%d mean=%.1f p50=%d p90=%d p99=%d p99.9=%d max=%d", getCount(), getMean(),
+                    valueAtPercentile(50), valueAtPercentile(90), valueAtPercentile(99), valueAtPercentile(99.9), getMax());
+        }
+    }
+}
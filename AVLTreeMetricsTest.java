@@ -0,0 +1,100 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+class AVLTreeMetricsTest {
+
+    @org.junit.jupiter.api.Test
+    void recordsOperations() {
+        AVLTree t = new AVLTree();
+        t.insert(-1, "not recorded");
+        AVLTreeMetrics metrics = new AVLTreeMetrics();
+        t.setMetrics(metrics);
+        assertSame(metrics, t.getMetrics());
+
+        long work = 0;
+        for (int i = 0; i < 1000; i++) {
+            work += t.insert(i, "v" + i); // sequential - only RR rotations
+        }
+        assertEquals(1000, metrics.latency(AVLTreeMetrics.Operation.INSERT).getCount());
+        assertEquals(0, metrics.rotations(AVLTreeMetrics.Rotation.LL));
+        assertEquals(0, metrics.rotations(AVLTreeMetrics.Rotation.LR));
+        long rr = metrics.rotations(AVLTreeMetrics.Rotation.RR);
+        assertTrue(rr > 0);
+        assertTrue(metrics.heightChanges() > 0 && metrics.heightChanges() <= work);
+        assertEquals(t.getRank(), metrics.treeHeight());
+
+        assertEquals("v500", t.search(500));
+        assertNull(t.fingerSearch(5000));
+        assertEquals(2, metrics.latency(AVLTreeMetrics.Operation.SEARCH).getCount());
+        AVLTreeMetrics.Histogram path = metrics.pathLength(AVLTreeMetrics.Operation.SEARCH);
+        assertTrue(path.getMax() >= 1 && path.getMax() <= t.getRank() + 1);
+
+        for (int i = 0; i < 1000; i += 2) t.delete(i);
+        assertEquals(500, metrics.latency(AVLTreeMetrics.Operation.DELETE).getCount());
+        assertEquals(t.getRank(), metrics.treeHeight());
+        assertTrue(metrics.toString().contains("DELETE"));
+
+        t.setMetrics(null);
+        t.insert(5000, "not recorded");
+        assertEquals(1000, metrics.latency(AVLTreeMetrics.Operation.INSERT).getCount());
+    }
+
+    @org.junit.jupiter.api.Test
+    void countsHeightChangesWhereTheyHappen() {
+        AVLTree t = new AVLTree();
+        AVLTreeMetrics metrics = new AVLTreeMetrics();
+        t.setMetrics(metrics);
+        t.insert(1, "a");
+        assertEquals(0, metrics.heightChanges());
+        t.insert(2, "b"); // 1 grows
+        assertEquals(1, metrics.heightChanges());
+        t.insert(3, "c"); // 2 grows, then the RR rotation lowers 1 - insert reports 3 units of work for it
+        assertEquals(3, metrics.heightChanges());
+        assertEquals(1, metrics.rotations(AVLTreeMetrics.Rotation.RR));
+    }
+
+    @org.junit.jupiter.api.Test
+    void pathLengthIsTheWalkedPath() {
+        AVLTree t = new AVLTree();
+        for (int k : new int[]{4, 2, 6, 1, 3, 5, 7}) t.insert(k, "v" + k); // perfect, 4 at the root
+        AVLTreeMetrics metrics = new AVLTreeMetrics();
+        t.setMetrics(metrics);
+        AVLTreeMetrics.Histogram deletes = metrics.pathLength(AVLTreeMetrics.Operation.DELETE);
+        t.delete(4);
+        assertEquals(1, deletes.getMax()); // the root was found at once, though 4 is gone and 5 replaced it
+        t.delete(8);
+        assertEquals(3, deletes.getMax()); // 5, 6, 7 and then nothing
+
+        AVLTreeMetrics.Histogram inserts = metrics.pathLength(AVLTreeMetrics.Operation.INSERT);
+        assertEquals(-1, t.insert(5, "again"));
+        assertEquals(1, inserts.getMax()); // found at the root
+        t.insert(8, "v8"); // 5, 6, 7 - then the RR rotation at 6 moves 7 up
+        assertEquals(3, inserts.getMax());
+
+        AVLTreeMetrics.Histogram searches = metrics.pathLength(AVLTreeMetrics.Operation.SEARCH);
+        t.setSearchCache(new AVLTreeSearchCache(16));
+        assertEquals("v1", t.search(1)); // 5, 2, 1
+        assertEquals("v1", t.search(1)); // from the cache
+        assertEquals(2, searches.getCount());
+        assertEquals(3, searches.getMax());
+        assertEquals(0, searches.valueAtPercentile(1));
+        assertEquals("v1", t.fingerSearch(1)); // the finger is still 8 - climbs to the root and descends again
+        assertEquals(5, searches.getMax()); // 8, 7, 5, 2, 1
+    }
+
+    @org.junit.jupiter.api.Test
+    void histogram() {
+        AVLTreeMetrics.Histogram h = new AVLTreeMetrics.Histogram();
+        assertEquals(0, h.valueAtPercentile(50));
+        for (int v = 1; v <= 1000; v++) h.record(v);
+        assertEquals(1000, h.getCount());
+        assertEquals(1000, h.getMax());
+        assertEquals(500.5, h.getMean(), 1e-9);
+        // small values are exact, larger ones within 1/32
+        assertEquals(10, h.valueAtPercentile(1));
+        assertEquals(500, h.valueAtPercentile(50), 500 / 32.0);
+        assertEquals(990, h.valueAtPercentile(99), 990 / 32.0);
+        assertEquals(1000, h.valueAtPercentile(100));
+        h.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, h.valueAtPercentile(100));
+    }
+}
@@ -0,0 +1,179 @@
+import java.util.Arrays;
+
+/**
+ * AVLTreeSearchCache
+ * <p>
+ * A bounded key -> info cache for AVLTree.search, enabled with AVLTree.setSearchCache.
+ * An open-addressing table over primitive int keys (linear probing, kept at most half full, so a hit is usually a
+ * single probe), with CLOCK eviction: every hit sets the entry's reference bit, and when the cache is full a hand
+ * sweeps the slots, clearing set bits and evicting the first entry whose bit is clear - recently used keys get
+ * a second chance, so a skewed workload keeps its hot keys cached.
+ * <p>
+ * Only items which exist are cached (not misses, nor items with a null info), so inserting a new key can never
+ * make an entry stale - the tree invalidates the cache on delete and clears it on operations which move or drop
+ * many keys at once (split, join, the bulk and set operations).
+ * <p>
+ * Not thread-safe, like AVLTree.
+ */
+public final class AVLTreeSearchCache {
+
+    private final int maxEntries;
+    private final int mask;
+    private final int[] keys;
+    private final String[] values; // null marks an empty slot
+    private final boolean[] referenced;
+    private int entries = 0;
+    private int hand = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * public AVLTreeSearchCache(int maxEntries)
+     * Creates an empty cache holding up to maxEntries items, in a table of the next power of two >= 2 * maxEntries.
+     * Complexity: O(maxEntries)
+     */
+    public AVLTreeSearchCache(int maxEntries) {
+        if (maxEntries < 1 || maxEntries > 1 << 29) throw new IllegalArgumentException("maxEntries out of range");
+        this.maxEntries = maxEntries;
+        int capacity = Integer.highestOneBit(2 * maxEntries - 1) << 1;
+        this.mask = capacity - 1;
+        this.keys = new int[capacity];
+        this.values = new String[capacity];
+        this.referenced = new boolean[capacity];
+    }
+
+    /**
+     * String get(int k)
+     * Returns the cached info of k, or null (a miss) if k isn't cached.
+     * Complexity: O(1) expected
+     */
+    String get(int k) {
+        for (int i = slot(k); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == k) {
+                referenced[i] = true;
+                hits++;
+                return values[i];
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * void put(int k, String info)
+     * Caches k -> info (after a miss, so k isn't cached), evicting an entry if the cache is full.
+     * Complexity: O(1) amortized
+     */
+    void put(int k, String info) {
+        if (info == null) return;
+        if (entries == maxEntries) evict();
+        int i = slot(k);
+        while (values[i] != null) i = (i + 1) & mask;
+        keys[i] = k;
+        values[i] = info;
+        referenced[i] = false; // it gets its bit on its first hit
+        entries++;
+    }
+
+    /**
+     * void invalidate(int k)
+     * Removes k from the cache, if it's there.
+     * Complexity: O(1) expected
+     */
+    void invalidate(int k) {
+        for (int i = slot(k); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == k) {
+                removeAt(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * void clear()
+     * Removes all entries. The statistics are kept.
+     * Complexity: O(capacity)
+     */
+    void clear() {
+        if (entries == 0) return;
+        Arrays.fill(values, null);
+        entries = 0;
+    }
+
+    public int size() {
+        return entries;
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    public long misses() {
+        return misses;
+    }
+
+    public long evictions() {
+        return evictions;
+    }
+
+    /**
+     * public double hitRate()
+     * Returns hits / (hits + misses), or 0 if nothing was looked up.
+     * Complexity: O(1)
+     */
+    public double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    public String toString() {
+        return String.format("entries=%d hits=%d misses=%d evictions=%d hitRate=%.3f",
+                entries, hits, misses, evictions, hitRate());
+    }
+
+    /**
+     * private void evict()
+     * CLOCK: advances the hand, giving referenced entries a second chance, and removes the first unreferenced one.
+     * Complexity: O(1) amortized
+     */
+    private void evict() {
+        while (true) {
+            if (values[hand] != null) {
+                if (!referenced[hand]) {
+                    removeAt(hand);
+                    evictions++;
+                    return;
+                }
+                referenced[hand] = false;
+            }
+            hand = (hand + 1) & mask;
+        }
+    }
+
+    /**
+     * private void removeAt(int i)
+     * Empties slot i and shifts back the following entries of its probe run which may move into the hole,
+     * so lookups never need tombstones.
+     * Complexity: O(length of the probe run)
+     */
+    private void removeAt(int i) {
+        values[i] = null;
+        entries--;
+        for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+            int ideal = slot(keys[j]);
+            if (((j - ideal) & mask) < ((j - i) & mask)) continue; // its ideal slot is after the hole
+            keys[i] = keys[j];
+            values[i] = values[j];
+            referenced[i] = referenced[j];
+            values[j] = null;
+            i = j;
+        }
+    }
+
+    private int slot(int k) {
+        int h = k * 0x9E3779B9; // Fibonacci hashing spreads sequential keys
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
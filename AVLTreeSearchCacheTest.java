@@ -0,0 +1,95 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AVLTreeSearchCacheTest {
+
+    @org.junit.jupiter.api.Test
+    void hitsAndEviction() {
+        AVLTree t = new AVLTree();
+        for (int i = 0; i < 100; i++) t.insert(i, "v" + i);
+        AVLTreeSearchCache cache = new AVLTreeSearchCache(8);
+        t.setSearchCache(cache);
+        assertSame(cache, t.getSearchCache());
+
+        assertEquals("v7", t.search(7));
+        assertEquals("v7", t.search(7));
+        assertNull(t.search(1000)); // misses aren't cached
+        assertNull(t.search(1000));
+        assertEquals(1, cache.hits());
+        assertEquals(3, cache.misses());
+        assertEquals(1, cache.size());
+
+        for (int i = 0; i < 50; i++) {
+            t.search(7); // hot - keeps its reference bit
+            t.search(20 + i);
+        }
+        assertEquals(8, cache.size());
+        assertTrue(cache.evictions() > 0);
+        long hits = cache.hits();
+        assertEquals("v7", t.search(7));
+        assertEquals(hits + 1, cache.hits());
+        assertTrue(cache.hitRate() > 0.4 && cache.hitRate() < 0.6);
+    }
+
+    @org.junit.jupiter.api.Test
+    void invalidatedByUpdates() {
+        AVLTree t = new AVLTree();
+        t.setSearchCache(new AVLTreeSearchCache(1024));
+        for (int i = 0; i < 100; i++) t.insert(i, "v" + i);
+        for (int i = 0; i < 100; i++) t.search(i);
+
+        t.delete(50); // a binary node: its successor's item moves into it
+        assertNull(t.search(50));
+        assertEquals("v51", t.search(51));
+        t.insert(50, "new");
+        assertEquals("new", t.search(50));
+
+        t.deleteAll(new int[]{10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24, 25, 26, 27, 28, 29, 30});
+        assertNull(t.search(10));
+        t.insertAll(new int[]{10, 11}, new String[]{"a", "b"});
+        assertEquals("a", t.search(10));
+
+        AVLTree other = new AVLTree();
+        for (int i = 60; i < 200; i++) other.insert(i, "o" + i);
+        t.intersection(other);
+        assertNull(t.search(0));
+        assertEquals("v60", t.search(60));
+
+        AVLTree big = new AVLTree();
+        big.setSearchCache(new AVLTreeSearchCache(16));
+        for (int i = 1000; i < 1010; i++) big.insert(i, "b" + i);
+        big.search(1005);
+        t.join(t.createNewNode(500, "x"), big);
+        assertEquals("b1005", t.search(1005));
+        assertEquals("x", t.search(500));
+
+        AVLTree[] parts = t.split(500);
+        assertEquals("v60", parts[0].search(60));
+    }
+
+    @org.junit.jupiter.api.Test
+    void randomAgainstMap() {
+        Random rnd = new Random(23);
+        AVLTree t = new AVLTree();
+        t.setSearchCache(new AVLTreeSearchCache(64));
+        Map<Integer, String> expected = new HashMap<>();
+        for (int op = 0; op < 50000; op++) {
+            int k = rnd.nextInt(512);
+            switch (rnd.nextInt(4)) {
+                case 0:
+                    if (t.insert(k, "v" + op) >= 0) expected.put(k, "v" + op);
+                    break;
+                case 1:
+                    t.delete(k);
+                    expected.remove(k);
+                    break;
+                default:
+                    assertEquals(expected.get(k), t.search(k));
+            }
+        }
+        assertTrue(t.getSearchCache().hits() > 0);
+    }
+}
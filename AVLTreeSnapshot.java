@@ -0,0 +1,236 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * AVLTreeSnapshot
+ * <p>
+ * A read-only, memory-mapped copy of an AVLTree.
+ * write() streams the tree in key order into a compact file:
+ * <pre>
+ *   header   : magic, format version, n, 0        (4 ints)
+ *   keys     : n sorted ints
+ *   offsets  : n + 1 ints - info i is blob[offsets[i], offsets[i + 1]), a negative offsets[i] marks a null info
+ *   blob     : UTF-8 bytes of all infos, in key order
+ * </pre>
+ * open() maps the file with FileChannel.map and answers lookups by binary search directly over the mapped keys,
+ * with no deserialization step - opening costs O(1) regardless of n, and the pages are shared (via the page cache)
+ * by every process mapping the same file. Only the infos that are actually returned are decoded.
+ * <p>
+ * The whole file is a single mapping, so it is limited to 2GB (Integer.MAX_VALUE bytes) - header, keys, offsets and
+ * blob together. write() refuses a tree that doesn't fit, rather than leaving a file open() can't map.
+ */
+public final class AVLTreeSnapshot {
+
+    private static final int MAGIC = 0x41564C53; // "AVLS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_INTS = 4;
+    private static final int NULL_MARK = Integer.MIN_VALUE;
+    static final long MAX_FILE_SIZE = Integer.MAX_VALUE; // the most a single MappedByteBuffer can hold
+
+    private final int n;
+    private final IntBuffer keys;
+    private final IntBuffer offsets;
+    private final ByteBuffer blob;
+
+    private AVLTreeSnapshot(MappedByteBuffer map) throws IOException {
+        if (map.capacity() < HEADER_INTS * 4 || map.getInt(0) != MAGIC)
+            throw new IOException("not an AVLTree snapshot");
+        if (map.getInt(4) != FORMAT_VERSION)
+            throw new IOException("unsupported snapshot version " + map.getInt(4));
+        this.n = map.getInt(8);
+        int keysAt = HEADER_INTS * 4;
+        if (n < 0 || keysAt + 8L * n + 4 > map.capacity()) // n keys and n + 1 offsets
+            throw new IOException("corrupt snapshot: " + n + " items don't fit in " + map.capacity() + " bytes");
+        int offsetsAt = keysAt + 4 * n;
+        int blobAt = offsetsAt + 4 * (n + 1);
+        this.keys = map.slice(keysAt, 4 * n).asIntBuffer();
+        this.offsets = map.slice(offsetsAt, 4 * (n + 1)).asIntBuffer();
+        this.blob = map.slice(blobAt, map.capacity() - blobAt);
+    }
+
+    /**
+     * public static void write(AVLTree t, Path file)
+     * Writes the contents of t to file in the snapshot format, walking the tree once with a cursor.
+     * Throws an IOException, and deletes the file, if the snapshot would exceed the 2GB mapping limit.
+     * Complexity: O(n)
+     */
+    public static void write(AVLTree t, Path file) throws IOException {
+        write(t, file, MAX_FILE_SIZE);
+    }
+
+    static void write(AVLTree t, Path file, long maxFileSize) throws IOException {
+        int n = t.size();
+        long keysAt = HEADER_INTS * 4;
+        long offsetsAt = keysAt + 4L * n;
+        long blobAt = offsetsAt + 4L * (n + 1);
+        if (blobAt > maxFileSize)
+            throw new IOException(n + " items exceed the " + maxFileSize + " byte snapshot limit");
+        try {
+            writeSections(t, file, n, keysAt, offsetsAt, blobAt, maxFileSize);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    private static void writeSections(AVLTree t, Path file, int n, long keysAt, long offsetsAt, long blobAt,
+                                      long maxFileSize) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_INTS * 4);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(n).putInt(0).flip();
+            writeFully(ch, header, 0);
+
+            // the three sections are filled side by side, each through its own buffer
+            ByteBuffer keyBuf = ByteBuffer.allocate(1 << 16);
+            ByteBuffer offsetBuf = ByteBuffer.allocate(1 << 16);
+            ByteBuffer blobBuf = ByteBuffer.allocate(1 << 16);
+            long[] positions = {keysAt, offsetsAt, blobAt};
+            long blobSize = 0;
+            AVLTree.Cursor c = t.cursor();
+            for (boolean ok = c.first(); ok; ok = c.next()) {
+                String info = c.getValue();
+                byte[] bytes = info == null ? new byte[0] : info.getBytes(StandardCharsets.UTF_8);
+                if (blobAt + blobSize + bytes.length > maxFileSize)
+                    throw new IOException("the snapshot exceeds the " + maxFileSize + " byte limit");
+                keyBuf = put(ch, keyBuf, positions, 0, 4).putInt(c.getKey());
+                offsetBuf = put(ch, offsetBuf, positions, 1, 4).putInt(info == null ? (int) blobSize | NULL_MARK : (int) blobSize);
+                blobBuf = put(ch, blobBuf, positions, 2, bytes.length).put(bytes);
+                blobSize += bytes.length;
+            }
+            put(ch, offsetBuf, positions, 1, 4).putInt((int) blobSize);
+            flush(ch, keyBuf, positions, 0);
+            flush(ch, offsetBuf, positions, 1);
+            flush(ch, blobBuf, positions, 2);
+            ch.force(true);
+        }
+    }
+
+    private static ByteBuffer put(FileChannel ch, ByteBuffer buf, long[] positions, int section, int bytes)
+            throws IOException {
+        if (buf.remaining() >= bytes) return buf;
+        flush(ch, buf, positions, section);
+        return bytes <= buf.capacity() ? buf : ByteBuffer.allocate(bytes);
+    }
+
+    private static void flush(FileChannel ch, ByteBuffer buf, long[] positions, int section) throws IOException {
+        buf.flip();
+        positions[section] += writeFully(ch, buf, positions[section]);
+        buf.clear();
+    }
+
+    private static int writeFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        int written = 0;
+        while (buf.hasRemaining()) written += ch.write(buf, position + written);
+        return written;
+    }
+
+    /**
+     * public static AVLTreeSnapshot open(Path file)
+     * Maps a snapshot file read-only. Nothing is read besides the header.
+     * Complexity: O(1)
+     */
+    public static AVLTreeSnapshot open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() > MAX_FILE_SIZE) throw new IOException(file + " is too large to map");
+            // the mapping stays valid after the channel is closed
+            return new AVLTreeSnapshot(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+        }
+    }
+
+    /**
+     * public int size()
+     * Returns the number of items in the snapshot.
+     * Complexity: O(1)
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * public int keyAt(int i)
+     * Returns the i-th smallest key (0-based).
+     * Complexity: O(1)
+     */
+    public int keyAt(int i) {
+        return keys.get(i);
+    }
+
+    /**
+     * public String infoAt(int i)
+     * Returns the info of the i-th smallest key (0-based), decoded from the blob.
+     * Complexity: O(length of the info)
+     */
+    public String infoAt(int i) {
+        int from = offsets.get(i);
+        if (from < 0) return null;
+        int to = offsets.get(i + 1) & ~NULL_MARK;
+        byte[] bytes = new byte[to - from];
+        blob.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * public int rank(int k)
+     * Returns the number of keys smaller than k, i.e. the index of ceiling(k).
+     * Complexity: O(logn)
+     */
+    public int rank(int k) {
+        int lo = 0, hi = n; // answer in [lo, hi]
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys.get(mid) < k) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * public String search(int k)
+     * returns the info of an item with key k if it exists in the snapshot, otherwise null
+     * Complexity: O(logn)
+     */
+    public String search(int k) {
+        int i = rank(k);
+        return i < n && keys.get(i) == k ? infoAt(i) : null;
+    }
+
+    /**
+     * public int floorIndex(int k)
+     * Returns the index of the largest key <= k, or -1 if there is none.
+     * Complexity: O(logn)
+     */
+    public int floorIndex(int k) {
+        int i = rank(k);
+        return i < n && keys.get(i) == k ? i : i - 1;
+    }
+
+    /**
+     * public int ceilingIndex(int k)
+     * Returns the index of the smallest key >= k, or -1 if there is none.
+     * Complexity: O(logn)
+     */
+    public int ceilingIndex(int k) {
+        int i = rank(k);
+        return i < n ? i : -1;
+    }
+
+    /**
+     * public int[] range(int lo, int hi)
+     * Returns [from, to) - the indexes of the keys k with lo <= k <= hi, to be read with keyAt/infoAt.
+     * Complexity: O(logn)
+     */
+    public int[] range(int lo, int hi) {
+        if (lo > hi) return new int[]{0, 0};
+        int from = rank(lo);
+        int to = hi == Integer.MAX_VALUE ? n : rank(hi + 1);
+        return new int[]{from, to};
+    }
+}
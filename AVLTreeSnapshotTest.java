@@ -0,0 +1,78 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AVLTreeSnapshotTest {
+
+    @org.junit.jupiter.api.io.TempDir
+    Path dir;
+
+    @org.junit.jupiter.api.Test
+    void writeAndMap() throws IOException {
+        AVLTree t1 = new AVLTree();
+        for (int i = 1; i <= 10000; i++) {
+            t1.insert(3 * i, "Key is " + 3 * i + (i % 7 == 0 ? " \u05e9\u05dc\u05d5\u05dd" : ""));
+        }
+        t1.insert(-5, null);
+        Path file = dir.resolve("tree.snapshot");
+        AVLTreeSnapshot.write(t1, file);
+        AVLTreeSnapshot s = AVLTreeSnapshot.open(file);
+
+        assertEquals(t1.size(), s.size());
+        int[] keys = t1.keysToArray();
+        String[] infos = t1.infoToArray();
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(keys[i], s.keyAt(i));
+            assertEquals(infos[i], s.infoAt(i));
+        }
+        assertEquals("Key is 21 \u05e9\u05dc\u05d5\u05dd", s.search(21));
+        assertNull(s.search(-5));
+        assertNull(s.search(22));
+        assertEquals(21, s.keyAt(s.floorIndex(23)));
+        assertEquals(24, s.keyAt(s.ceilingIndex(22)));
+        assertEquals(-1, s.floorIndex(-6));
+        assertEquals(-1, s.ceilingIndex(30001));
+        int[] range = s.range(10, 20);
+        assertEquals(3, range[1] - range[0]); // 12, 15, 18
+        assertEquals(12, s.keyAt(range[0]));
+    }
+
+    @org.junit.jupiter.api.Test
+    void emptyTree() throws IOException {
+        Path file = dir.resolve("empty.snapshot");
+        AVLTreeSnapshot.write(new AVLTree(), file);
+        AVLTreeSnapshot s = AVLTreeSnapshot.open(file);
+        assertEquals(0, s.size());
+        assertNull(s.search(1));
+        assertEquals(-1, s.floorIndex(1));
+    }
+
+    @org.junit.jupiter.api.Test
+    void rejectsOtherFiles() throws IOException {
+        Path file = dir.resolve("other");
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+        assertThrows(IOException.class, () -> AVLTreeSnapshot.open(file));
+
+        Files.write(file, java.nio.ByteBuffer.allocate(20).putInt(0x41564C53).putInt(1).putInt(1000).array());
+        assertThrows(IOException.class, () -> AVLTreeSnapshot.open(file)); // 1000 items in 20 bytes
+    }
+
+    @org.junit.jupiter.api.Test
+    void limitCoversTheWholeFile() throws IOException {
+        AVLTree t = new AVLTree();
+        for (int i = 0; i < 100; i++) t.insert(i, "abcd");
+        // header 16 + keys 400 + offsets 404 + blob 400 = 1220 bytes, though the blob alone is only 400
+        Path file = dir.resolve("limited.snapshot");
+        AVLTreeSnapshot.write(t, file, 1220);
+        assertEquals(1220, Files.size(file));
+        assertEquals("abcd", AVLTreeSnapshot.open(file).search(99));
+
+        Path tooLarge = dir.resolve("too-large.snapshot");
+        assertThrows(IOException.class, () -> AVLTreeSnapshot.write(t, tooLarge, 1219));
+        assertFalse(Files.exists(tooLarge));
+        assertThrows(IOException.class, () -> AVLTreeSnapshot.write(t, tooLarge, 500)); // the keys alone don't fit
+        assertFalse(Files.exists(tooLarge));
+    }
+}
@@ -175,4 +175,474 @@ class AVLTreeTest {
         AVLTree[] b = t1.split(12);
     }
 
-}
\ No newline at end of file
+    @org.junit.jupiter.api.Test
+    void delete() {
+        AVLTree t1 = new AVLTree();
+        for (int i = 1; i < 30; i++) {
+            t1.insert(i, "Key is " + i);
+        }
+        assertEquals(-1, t1.delete(50));
+        for (int i = 1; i < 30; i += 2) {
+            assertNotEquals(-1, t1.delete(i));
+        }
+        assertEquals(14, t1.size());
+        for (int i = 1; i < 30; i++) {
+            if (i % 2 == 1) assertNull(t1.search(i));
+            else assertEquals("Key is " + i, t1.search(i));
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void deleteOfABinaryNodeUsesItsSuccessor() {
+        AVLTree t1 = new AVLTree();
+        for (int k : new int[]{4, 2, 6, 1, 3, 5, 7}) t1.insert(k, "v" + k); // perfect, 4 at the root
+        assertEquals(1, t1.minSubtree(t1.getRoot()).getKey());
+        assertEquals(5, t1.minSubtree(t1.getRoot().getRight()).getKey());
+        assertEquals(7, t1.minSubtree(t1.getRoot().getRight().getRight()).getKey()); // a leaf is its own minimum
+        assertNotEquals(-1, t1.delete(4)); // the successor 5 is a leaf
+        assertEquals(5, t1.getRoot().getKey());
+        assertEquals("v5", t1.search(5));
+        assertArrayEquals(new int[]{1, 2, 3, 5, 6, 7}, t1.keysToArray());
+        assertBalanced(t1.getRoot());
+
+        AVLTree t2 = new AVLTree();
+        for (int k : new int[]{2, 1, 3, 4}) t2.insert(k, "v" + k);
+        assertNotEquals(-1, t2.delete(2)); // the successor 3 has a right child
+        assertArrayEquals(new int[]{1, 3, 4}, t2.keysToArray());
+        assertArrayEquals(new String[]{"v1", "v3", "v4"}, t2.infoToArray());
+        assertBalanced(t2.getRoot());
+    }
+
+    @org.junit.jupiter.api.Test
+    void joinWhoseSpineEndsOnAnExternalLeaf() {
+        AVLTree t1 = new AVLTree();
+        t1.insert(2, "v2");
+        t1.insert(1, "v1"); // 2 has no right child
+        AVLTree t2 = new AVLTree();
+        t2.insert(10, "v10");
+        t1.join(t1.createNewNode(5, "v5"), t2); // the right spine of t1 ends below 2
+        assertArrayEquals(new int[]{1, 2, 5, 10}, t1.keysToArray());
+        assertEquals(4, t1.size());
+        assertBalanced(t1.getRoot());
+
+        AVLTree[] parts = t1.split(5);
+        assertArrayEquals(new int[]{1, 2}, parts[0].keysToArray());
+        assertArrayEquals(new int[]{10}, parts[1].keysToArray());
+    }
+
+    @org.junit.jupiter.api.Test
+    void cursor() {
+        AVLTree t1 = new AVLTree();
+        AVLTree.Cursor c = t1.cursor();
+        assertFalse(c.first());
+        assertFalse(c.isValid());
+        for (int i = 2; i <= 40; i += 2) {
+            t1.insert(i, "Key is " + i);
+        }
+        int expected = 2;
+        for (boolean ok = c.first(); ok; ok = c.next()) {
+            assertEquals(expected, c.getKey());
+            expected += 2;
+        }
+        assertEquals(42, expected);
+        expected = 40;
+        for (boolean ok = c.last(); ok; ok = c.prev()) {
+            assertEquals(expected, c.getKey());
+            expected -= 2;
+        }
+        assertEquals(0, expected);
+        assertTrue(c.seek(7));
+        assertEquals(8, c.getKey());
+        assertTrue(c.seek(8));
+        assertEquals("Key is 8", c.getValue());
+        assertFalse(c.seek(41));
+        assertNull(c.getValue());
+    }
+
+    @org.junit.jupiter.api.Test
+    void infoToArray() {
+        AVLTree t1 = new AVLTree();
+        assertEquals(0, t1.infoToArray().length);
+        for (int i = 5; i > 0; i--) {
+            t1.insert(i, "Key is " + i);
+        }
+        assertArrayEquals(new String[]{"Key is 1", "Key is 2", "Key is 3", "Key is 4", "Key is 5"}, t1.infoToArray());
+    }
+
+    @org.junit.jupiter.api.Test
+    void fromSorted() {
+        int[] keys = new int[1000];
+        String[] infos = new String[1000];
+        for (int i = 0; i < 1000; i++) {
+            keys[i] = 2 * i;
+            infos[i] = "Key is " + 2 * i;
+        }
+        AVLTree t1 = AVLTree.fromSorted(keys, infos);
+        assertEquals(1000, t1.size());
+        assertEquals(9, t1.getRank()); // ceil(log2(1001)) - 1
+        assertArrayEquals(keys, t1.keysToArray());
+        assertArrayEquals(infos, t1.infoToArray());
+        assertEquals("Key is 500", t1.search(500));
+        assertNull(t1.getRoot().getParent());
+
+        // the tree is a regular AVL tree afterwards
+        assertNotEquals(-1, t1.insert(1, "1"));
+        assertNotEquals(-1, t1.delete(500));
+        assertEquals(1000, t1.size());
+
+        assertTrue(AVLTree.fromSorted(new int[0], new String[0]).empty());
+        assertThrows(IllegalArgumentException.class, () -> AVLTree.fromSorted(new int[]{1, 3, 2}, new String[]{"1", "3", "2"}));
+        assertThrows(IllegalArgumentException.class, () -> AVLTree.fromSorted(new int[]{1, 2}, new String[]{"1"}));
+    }
+
+    @org.junit.jupiter.api.Test
+    void insertAllDeleteAll() {
+        AVLTree t1 = new AVLTree();
+        for (int i = 0; i < 1000; i += 2) {
+            t1.insert(i, "Key is " + i);
+        }
+        assertTrue(t1.insertAll(new int[]{5, 3, 1, 3}, new String[]{"5", "3", "1", "again"}) >= 0);
+        assertEquals(503, t1.size());
+        assertEquals("3", t1.search(3));
+        assertTrue(t1.insertAll(new int[]{4, 4}, new String[]{"not", "inserted"}) >= 0); // split and joined back
+        assertEquals("Key is 4", t1.search(4));
+        assertEquals(503, t1.size());
+
+        int[] odd = new int[500];
+        String[] oddInfos = new String[500];
+        for (int i = 0; i < 500; i++) {
+            odd[i] = 999 - 2 * i;
+            oddInfos[i] = "Key is " + odd[i];
+        }
+        assertTrue(t1.insertAll(odd, oddInfos) > 0);
+        assertEquals(1000, t1.size());
+        assertEquals("5", t1.search(5));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, t1.keysToArray()[i]);
+        }
+
+        assertTrue(t1.deleteAll(new int[]{7, 2000, 8}) >= 0);
+        assertEquals(998, t1.size());
+        assertNull(t1.search(7));
+        assertTrue(t1.deleteAll(odd) > 0);
+        assertEquals(499, t1.size());
+        assertArrayEquals(new int[]{0, 2, 4, 6}, java.util.Arrays.copyOf(t1.keysToArray(), 4));
+        assertNotEquals(-1, t1.insert(7, "7"));
+        assertEquals(500, t1.size());
+        assertEquals(0, t1.deleteAll(new int[0]));
+        assertTrue(t1.deleteAll(t1.keysToArray()) > 0);
+        assertTrue(t1.empty());
+        assertEquals(0, t1.insertAll(new int[]{2, 1, 3}, new String[]{"2", "1", "3"})); // built, nothing rebalanced
+        assertEquals(3, t1.size());
+    }
+
+    @org.junit.jupiter.api.Test
+    void batchesMatchSingleOperations() {
+        java.util.Random r = new java.util.Random(3);
+        AVLTree t = new AVLTree();
+        AVLTree twin = new AVLTree(); // gets every batch in reverse order
+        java.util.TreeMap<Integer, String> expected = new java.util.TreeMap<>();
+        for (int round = 0; round < 200; round++) {
+            int m = 1 << r.nextInt(12); // from single keys to batches larger than the tree
+            int[] keys = new int[m];
+            String[] infos = new String[m];
+            for (int i = 0; i < m; i++) {
+                keys[i] = r.nextInt(20000);
+                infos[i] = round + ":" + i;
+            }
+            int[] reversed = new int[m];
+            String[] reversedInfos = new String[m];
+            for (int i = 0; i < m; i++) {
+                reversed[i] = keys[m - 1 - i];
+                reversedInfos[i] = infos[m - 1 - i];
+            }
+            // the same tree and the same set of keys - the same count, whatever the order of the batch
+            if (r.nextBoolean()) {
+                assertEquals(twin.insertAll(reversed, reversedInfos), t.insertAll(keys, infos));
+                for (int i = 0; i < m; i++) expected.putIfAbsent(keys[i], infos[i]);
+            } else {
+                assertEquals(twin.deleteAll(reversed), t.deleteAll(keys));
+                for (int k : keys) expected.remove(k);
+            }
+            assertEquals(expected.size(), t.size());
+            if (!t.empty()) assertEquals(t.size(), t.getRoot().getSize());
+            assertBalanced(t.getRoot());
+        }
+        assertArrayEquals(expected.keySet().stream().mapToInt(Integer::intValue).toArray(), t.keysToArray());
+        assertArrayEquals(expected.values().toArray(new String[0]), t.infoToArray());
+        assertArrayEquals(t.keysToArray(), twin.keysToArray());
+        int k = expected.firstKey();
+        assertEquals(-1, t.insert(k, "again")); // the tree works as usual afterwards
+        assertNotEquals(-1, t.delete(k));
+    }
+
+    private static int assertBalanced(AVLTree.IAVLNode n) {
+        if (n == null || !n.isRealNode()) return -1;
+        if (n.getLeft().isRealNode()) assertSame(n, n.getLeft().getParent());
+        if (n.getRight().isRealNode()) assertSame(n, n.getRight().getParent());
+        int hl = assertBalanced(n.getLeft());
+        int hr = assertBalanced(n.getRight());
+        assertTrue(Math.abs(hl - hr) <= 1);
+        assertEquals(Math.max(hl, hr) + 1, n.getHeight());
+        return n.getHeight();
+    }
+
+    @org.junit.jupiter.api.Test
+    void orderStatistics() {
+        AVLTree t1 = new AVLTree();
+        assertEquals(-1, t1.select(0));
+        assertEquals(0, t1.rank(5));
+        for (int i = 1; i < 100; i++) {
+            t1.insert(3 * i, "Key is " + 3 * i);
+        }
+        int[] keys = t1.keysToArray();
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(keys[i], t1.select(i));
+            assertEquals(i, t1.rank(keys[i]));
+            assertEquals(i + 1, t1.rank(keys[i] + 1));
+        }
+        assertEquals(-1, t1.select(99));
+        assertEquals(-1, t1.select(-1));
+        assertEquals(99, t1.rank(Integer.MAX_VALUE));
+        assertEquals(4, t1.countRange(3, 12));
+        assertEquals(3, t1.countRange(4, 13));
+        assertEquals(0, t1.countRange(13, 4));
+        assertEquals(99, t1.countRange(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        t1.delete(6);
+        assertEquals(9, t1.select(1));
+        assertEquals(3, t1.countRange(3, 12));
+    }
+
+    @org.junit.jupiter.api.Test
+    void navigation() {
+        AVLTree t1 = new AVLTree();
+        assertNull(t1.floor(5));
+        assertFalse(t1.rangeScan(0, 10).iterator().hasNext());
+        for (int i = 0; i <= 100; i += 10) {
+            t1.insert(i, "Key is " + i);
+        }
+        assertEquals(20, t1.floor(25).getKey());
+        assertEquals(20, t1.floor(20).getKey());
+        assertNull(t1.floor(-1));
+        assertEquals(30, t1.ceiling(25).getKey());
+        assertEquals(30, t1.ceiling(30).getKey());
+        assertNull(t1.ceiling(101));
+        assertEquals(20, t1.lower(30).getKey());
+        assertNull(t1.lower(0));
+        assertEquals(40, t1.higher(30).getKey());
+        assertNull(t1.higher(100));
+        assertNull(t1.higher(Integer.MAX_VALUE));
+
+        int expected = 30;
+        for (AVLTree.IAVLNode n : t1.rangeScan(25, 70)) {
+            assertEquals(expected, n.getKey());
+            assertEquals("Key is " + expected, n.getValue());
+            expected += 10;
+        }
+        assertEquals(80, expected);
+        assertFalse(t1.rangeScan(41, 49).iterator().hasNext());
+        assertFalse(t1.rangeScan(70, 25).iterator().hasNext());
+    }
+
+    @org.junit.jupiter.api.Test
+    void setOperations() {
+        // big enough for the recursion to fork
+        AVLTree evens = new AVLTree(), threes = new AVLTree();
+        for (int i = 0; i < 30000; i += 2) evens.insert(i, "even " + i);
+        for (int i = 0; i < 30000; i += 3) threes.insert(i, "three " + i);
+        evens.union(threes);
+        assertTrue(threes.empty());
+        assertEquals(15000 + 10000 - 5000, evens.size());
+        assertEquals("even 6", evens.search(6));
+        assertEquals("three 9", evens.search(9));
+        assertNull(evens.search(7));
+        int[] keys = evens.keysToArray();
+        for (int i = 1; i < keys.length; i++) assertTrue(keys[i - 1] < keys[i]);
+        assertEquals(evens.size(), evens.getRoot().getSize());
+        assertNull(evens.getRoot().getParent());
+
+        AVLTree sixes = new AVLTree();
+        for (int i = 0; i < 40000; i += 6) sixes.insert(i, "six " + i);
+        evens.intersection(sixes);
+        assertEquals(5000, evens.size());
+        assertEquals("even 12", evens.search(12));
+        assertNull(evens.search(9));
+        assertEquals(29994, evens.keysToArray()[4999]);
+
+        AVLTree twelves = new AVLTree();
+        for (int i = 0; i < 30000; i += 12) twelves.insert(i, "twelve " + i);
+        evens.difference(twelves);
+        assertEquals(2500, evens.size());
+        assertNull(evens.search(12));
+        assertEquals("even 18", evens.search(18));
+        assertNotEquals(-1, evens.insert(12, "back"));
+        assertEquals(-1, evens.insert(18, "again"));
+        assertNotEquals(-1, evens.delete(18));
+
+        AVLTree empty = new AVLTree();
+        empty.union(evens);
+        assertEquals(2500, empty.size());
+        empty.intersection(new AVLTree());
+        assertTrue(empty.empty());
+        assertNull(empty.getRoot());
+    }
+
+    @org.junit.jupiter.api.Test
+    void streams() {
+        AVLTree t1 = new AVLTree();
+        assertEquals(0, t1.stream().count());
+        for (int i = 0; i < 20000; i++) {
+            t1.insert((i * 7919) % 20000, "Key is " + i);
+        }
+        assertEquals(20000, t1.spliterator().getExactSizeIfKnown());
+        assertArrayEquals(t1.keysToArray(), t1.stream().mapToInt(AVLTree.IAVLNode::getKey).toArray());
+        assertArrayEquals(t1.keysToArray(), t1.parallelStream().mapToInt(AVLTree.IAVLNode::getKey).toArray());
+        assertEquals(20000L * 19999 / 2, t1.parallelStream().mapToLong(AVLTree.IAVLNode::getKey).sum());
+        assertEquals(10000, t1.parallelStream().filter(n -> n.getKey() % 2 == 0).count());
+
+        java.util.Spliterator<AVLTree.IAVLNode> right = t1.spliterator();
+        java.util.Spliterator<AVLTree.IAVLNode> left = right.trySplit();
+        assertEquals(10000, left.estimateSize());
+        assertEquals(10000, right.estimateSize());
+        assertTrue(right.tryAdvance(n -> assertEquals(10000, n.getKey())));
+        assertNull(right.trySplit());
+        assertEquals(9999, right.estimateSize());
+    }
+
+    @org.junit.jupiter.api.Test
+    void aggregates() {
+        assertThrows(IllegalStateException.class, () -> new AVLTree().rangeAggregate(0, 1));
+        // first: the value of the smallest key of the range - associative but not commutative
+        AVLTree.Aggregator first = new AVLTree.Aggregator() {
+            public long identity() {
+                return -1;
+            }
+
+            public long lift(int key, String info) {
+                return Long.parseLong(info);
+            }
+
+            public long combine(long a, long b) {
+                return a == -1 ? b : a;
+            }
+        };
+        AVLTree sums = new AVLTree(AVLTree.Aggregator.sumOfKeys());
+        AVLTree maxes = new AVLTree(AVLTree.Aggregator.maxOf(Long::parseLong));
+        AVLTree firsts = new AVLTree(first);
+        java.util.TreeMap<Integer, Long> expected = new java.util.TreeMap<>();
+        java.util.Random random = new java.util.Random(16);
+        for (int i = 0; i < 3000; i++) {
+            int k = random.nextInt(1000);
+            long v = random.nextInt(1000000);
+            if (random.nextInt(3) > 0) {
+                for (AVLTree t : new AVLTree[]{sums, maxes, firsts}) t.insert(k, Long.toString(v));
+                expected.putIfAbsent(k, v);
+            } else {
+                for (AVLTree t : new AVLTree[]{sums, maxes, firsts}) t.delete(k);
+                expected.remove(k);
+            }
+            int lo = random.nextInt(1000), hi = lo + random.nextInt(300);
+            java.util.Collection<Long> range = expected.subMap(lo, true, hi, true).values();
+            assertEquals(expected.subMap(lo, true, hi, true).keySet().stream().mapToLong(x -> x).sum(),
+                    sums.rangeAggregate(lo, hi));
+            assertEquals(range.stream().mapToLong(x -> x).max().orElse(Long.MIN_VALUE), maxes.rangeAggregate(lo, hi));
+            assertEquals(range.stream().findFirst().orElse(-1L), firsts.rangeAggregate(lo, hi));
+        }
+        assertEquals(expected.keySet().stream().mapToLong(x -> x).sum(), sums.aggregate());
+        assertEquals(0, sums.rangeAggregate(10, 5));
+
+        // split and join keep the aggregates
+        int x = expected.keySet().iterator().next() + 1;
+        while (sums.search(x) == null) x++;
+        AVLTree[] parts = sums.split(x);
+        assertEquals(expected.headMap(x).keySet().stream().mapToLong(k -> k).sum(), parts[0].aggregate());
+        assertEquals(expected.tailMap(x, false).keySet().stream().mapToLong(k -> k).sum(), parts[1].aggregate());
+        parts[0].join(parts[0].createNewNode(x, "0"), parts[1]);
+        assertEquals(expected.keySet().stream().mapToLong(k -> k).sum(), parts[0].aggregate());
+        assertEquals(x, parts[0].rangeAggregate(x, x));
+    }
+
+    @org.junit.jupiter.api.Test
+    void joiningRequiresTheSameAggregator() {
+        AVLTree sums = new AVLTree(AVLTree.Aggregator.sumOfKeys());
+        for (int i = 0; i < 50; i++) sums.insert(i, "v");
+        AVLTree plain = new AVLTree();
+        for (int i = 100; i < 200; i++) plain.insert(i, "v");
+        assertThrows(IllegalArgumentException.class, () -> sums.union(plain));
+        assertThrows(IllegalArgumentException.class, () -> sums.intersection(plain));
+        assertThrows(IllegalArgumentException.class, () -> sums.difference(plain));
+        assertThrows(IllegalArgumentException.class, () -> sums.join(sums.createNewNode(50, "v"), plain));
+        assertThrows(IllegalArgumentException.class, () -> plain.join(plain.createNewNode(50, "v"), sums));
+        assertEquals(1225, sums.aggregate()); // untouched
+        assertEquals(100, plain.size());
+
+        AVLTree moreSums = new AVLTree(AVLTree.Aggregator.sumOfKeys()); // the same instance
+        for (int i = 100; i < 200; i++) moreSums.insert(i, "v");
+        sums.union(moreSums);
+        assertEquals(16175, sums.aggregate());
+    }
+
+    @org.junit.jupiter.api.Test
+    void finger() {
+        AVLTree t1 = new AVLTree();
+        assertNull(t1.fingerSearch(3));
+        for (int i = 0; i < 1000; i++) {
+            assertNotEquals(-1, t1.fingerInsert(i * 2, "Key is " + i * 2)); // appends
+        }
+        assertEquals(-1, t1.fingerInsert(500, "again"));
+        assertEquals("Key is 500", t1.fingerSearch(500));
+        assertNull(t1.fingerSearch(501));
+        assertEquals("Key is 502", t1.fingerSearch(502));
+        assertEquals("Key is 0", t1.fingerSearch(0));
+        assertEquals("Key is 1998", t1.fingerSearch(1998));
+
+        // nearly sorted, with deletes in between
+        java.util.TreeMap<Integer, String> expected = new java.util.TreeMap<>();
+        for (int i = 0; i < 1000; i++) expected.put(i * 2, "Key is " + i * 2);
+        java.util.Random random = new java.util.Random(17);
+        int k = 0;
+        for (int i = 0; i < 5000; i++) {
+            k += random.nextInt(7) - 2;
+            if (random.nextInt(4) == 0) {
+                assertEquals(expected.remove(k) == null, t1.delete(k) == -1);
+            } else {
+                assertEquals(expected.containsKey(k), t1.fingerInsert(k, "v" + k) == -1);
+                expected.putIfAbsent(k, "v" + k);
+            }
+            assertEquals(expected.get(k + 1), t1.fingerSearch(k + 1));
+        }
+        assertEquals(expected.size(), t1.size());
+        assertArrayEquals(expected.keySet().stream().mapToInt(x -> x).toArray(), t1.keysToArray());
+        assertArrayEquals(expected.values().toArray(new String[0]), t1.infoToArray());
+    }
+
+    @org.junit.jupiter.api.Test
+    void externalLeafIsImmutable() {
+        AVLTree t1 = new AVLTree();
+        AVLTree.AVLNode leaf = t1.externalLeaf;
+        java.util.Random random = new java.util.Random(19);
+        for (int i = 0; i < 5000; i++) {
+            if (random.nextInt(3) > 0) t1.insert(random.nextInt(2000), "v");
+            else t1.delete(random.nextInt(2000));
+        }
+        AVLTree.IAVLNode x = t1.selectNode(t1.size() / 2);
+        AVLTree[] parts = t1.split(x.getKey());
+        parts[0].join(parts[0].createNewNode(x.getKey(), "x"), parts[1]);
+
+        leaf.setParent(x);
+        leaf.setLeft(x);
+        leaf.setHeight(7);
+        leaf.setSize(7);
+        leaf.setKey(7);
+        for (AVLTree.AVLNode l : new AVLTree.AVLNode[]{leaf, parts[0].externalLeaf, parts[1].externalLeaf}) {
+            assertFalse(l.isRealNode());
+            assertNull(l.getParent());
+            assertNull(l.getLeft());
+            assertNull(l.getRight());
+            assertEquals(-1, l.getHeight());
+            assertEquals(0, l.getSize());
+            assertEquals(-1, l.getKey());
+        }
+    }
+
+}
@@ -0,0 +1,392 @@
+import java.util.Arrays;
+
+/**
+ * ArrayAVLTree
+ * <p>
+ * An AVL Tree with distinct integer keys and String info, same operations as AVLTree,
+ * which keeps its nodes in parallel primitive arrays (struct-of-arrays) instead of one object per node.
+ * A node is an int slot into the arrays; slot 0 (NIL) plays the role of AVLTree's external leaf
+ * (height -1). Freed slots are chained in a free-list and reused by later inserts,
+ * so a long-lived tree creates no garbage besides the info strings themselves.
+ * <p>
+ * A node takes 17 bytes: its key, the reference to its info, its left and right slots and a byte height.
+ * An AVLTree node takes 56 (with compressed references), so this is 3.3x smaller - as the JMH module's InsertBenchmark
+ * measures with -prof gc (see the README). There are no parent slots:
+ * insert and delete remember the path they walked down, and rebalance back up along it. The size is a counter.
+ * The info strings belong to the caller and count in neither figure; if every item has its own string,
+ * they take more room than the nodes of either tree.
+ */
+public class ArrayAVLTree {
+
+    static final int NIL = 0;
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int MAX_DEPTH = 64; // an AVL tree of 2^31 nodes is less than 46 high
+
+    private int[] keys;
+    private String[] infos;
+    private int[] left;
+    private int[] right; // doubles as the 'next' pointer of the free-list
+    private byte[] height;
+
+    private final int[] path = new int[MAX_DEPTH]; // the slots above the current node, from the root down
+    private int root = NIL;
+    private int count;
+    private int freeList = NIL;
+    private int used = 1; // slots [1, used) were handed out at least once
+
+    /**
+     * public ArrayAVLTree()
+     * ArrayAVLTree constructor, with a small initial capacity
+     * Complexity: O(1)
+     */
+    public ArrayAVLTree() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * public ArrayAVLTree(int capacity)
+     * ArrayAVLTree constructor, preallocating room for `capacity` nodes
+     * Complexity: O(capacity)
+     */
+    public ArrayAVLTree(int capacity) {
+        int n = Math.max(capacity, 1) + 1; // + NIL
+        keys = new int[n];
+        infos = new String[n];
+        left = new int[n];
+        right = new int[n];
+        height = new byte[n];
+        height[NIL] = -1; // important to get the balance afterwards
+    }
+
+    /**
+     * public boolean empty()
+     * returns true if and only if the tree is empty
+     * Complexity: O(1)
+     */
+    public boolean empty() {
+        return root == NIL;
+    }
+
+    /**
+     * public int size()
+     * Returns the number of nodes in the tree.
+     * Complexity: O(1)
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * public int getRank()
+     * Returns the rank (height) of the tree, -1 for an empty tree.
+     * Complexity: O(1)
+     */
+    public int getRank() {
+        return height[root];
+    }
+
+    /**
+     * public int capacity()
+     * Returns the number of node slots currently allocated.
+     * Complexity: O(1)
+     */
+    public int capacity() {
+        return keys.length - 1;
+    }
+
+    /**
+     * public String search(int k)
+     * returns the info of an item with key k if it exists in the tree
+     * otherwise, returns null
+     * Complexity: O(logn)
+     */
+    public String search(int k) {
+        int n = find(k);
+        return n == NIL ? null : infos[n];
+    }
+
+    /**
+     * private int find(int k)
+     * Iterative search - returns the slot holding key k, or NIL.
+     * Complexity: O(logn)
+     */
+    private int find(int k) {
+        int n = root;
+        while (n != NIL) {
+            int key = keys[n];
+            if (key == k) return n;
+            n = k < key ? left[n] : right[n];
+        }
+        return NIL;
+    }
+
+    /**
+     * public int insert(int k, String i)
+     * inserts an item with key k and info i to the AVL tree.
+     * returns the number of rebalancing operations, counted like AVLTree.insert
+     * (height change - 1, single rotation - 2, double rotation - 5).
+     * returns -1 if an item with key k already exists in the tree.
+     * Complexity: O(logn)
+     */
+    public int insert(int k, String i) {
+        int depth = 0;
+        int n = root;
+        while (n != NIL) {
+            if (keys[n] == k) return -1;
+            path[depth++] = n;
+            n = k < keys[n] ? left[n] : right[n];
+        }
+        int x = allocate(k, i);
+        if (depth == 0) root = x;
+        else if (k < keys[path[depth - 1]]) left[path[depth - 1]] = x;
+        else right[path[depth - 1]] = x;
+        count++;
+        return rebalanceUpwards(depth);
+    }
+
+    /**
+     * public int delete(int k)
+     * deletes an item with key k from the tree, if it is there.
+     * returns the number of rebalancing operations, counted like AVLTree.delete.
+     * returns -1 if an item with key k was not found in the tree.
+     * Complexity: O(logn)
+     */
+    public int delete(int k) {
+        int depth = 0;
+        int n = root;
+        while (n != NIL && keys[n] != k) {
+            path[depth++] = n;
+            n = k < keys[n] ? left[n] : right[n];
+        }
+        if (n == NIL) return -1;
+        if (left[n] != NIL && right[n] != NIL) {
+            // binary node - move the successor into it and delete the successor instead
+            int binary = n;
+            path[depth++] = n;
+            n = right[n];
+            while (left[n] != NIL) {
+                path[depth++] = n;
+                n = left[n];
+            }
+            keys[binary] = keys[n];
+            infos[binary] = infos[n];
+        }
+        replaceChild(depth, n, left[n] != NIL ? left[n] : right[n]);
+        release(n);
+        count--;
+        return rebalanceUpwards(depth);
+    }
+
+    /**
+     * public String min()
+     * Returns the info of the item with the smallest key in the tree,
+     * or null if the tree is empty
+     * Complexity: O(logn)
+     */
+    public String min() {
+        if (root == NIL) return null;
+        int n = root;
+        while (left[n] != NIL) n = left[n];
+        return infos[n];
+    }
+
+    /**
+     * public String max()
+     * Returns the info of the item with the largest key in the tree,
+     * or null if the tree is empty
+     * Complexity: O(logn)
+     */
+    public String max() {
+        if (root == NIL) return null;
+        int n = root;
+        while (right[n] != NIL) n = right[n];
+        return infos[n];
+    }
+
+    /**
+     * public int[] keysToArray()
+     * Returns a sorted array which contains all keys in the tree,
+     * or an empty array if the tree is empty.
+     * Complexity: O(n)
+     */
+    public int[] keysToArray() {
+        int[] arr = new int[count];
+        inOrder(arr, null);
+        return arr;
+    }
+
+    /**
+     * public String[] infoToArray()
+     * Returns an array which contains all info in the tree, sorted by their respective keys,
+     * or an empty array if the tree is empty.
+     * Complexity: O(n)
+     */
+    public String[] infoToArray() {
+        String[] arr = new String[count];
+        inOrder(null, arr);
+        return arr;
+    }
+
+    /**
+     * private void inOrder(int[] keysOut, String[] infosOut)
+     * Writes the keys (if keysOut isn't null) and the infos (if infosOut isn't null) in key order,
+     * keeping the slots still to visit on the path stack.
+     * Complexity: O(n)
+     */
+    private void inOrder(int[] keysOut, String[] infosOut) {
+        int i = 0;
+        int depth = 0;
+        int n = root;
+        while (n != NIL || depth > 0) {
+            while (n != NIL) {
+                path[depth++] = n;
+                n = left[n];
+            }
+            n = path[--depth];
+            if (keysOut != null) keysOut[i] = keys[n];
+            if (infosOut != null) infosOut[i] = infos[n];
+            i++;
+            n = right[n];
+        }
+    }
+
+    /**
+     * private int allocate(int k, String i)
+     * Takes a slot from the free-list, or the next unused slot (growing the arrays if needed).
+     * Complexity: O(1) amortized
+     */
+    private int allocate(int k, String i) {
+        int x;
+        if (freeList != NIL) {
+            x = freeList;
+            freeList = right[x];
+        } else {
+            if (used == keys.length) grow();
+            x = used++;
+        }
+        keys[x] = k;
+        infos[x] = i;
+        left[x] = NIL;
+        right[x] = NIL;
+        height[x] = 0;
+        return x;
+    }
+
+    /**
+     * private void release(int x)
+     * Returns slot x to the free-list.
+     * Complexity: O(1)
+     */
+    private void release(int x) {
+        infos[x] = null; // let the GC have the info
+        left[x] = NIL;
+        right[x] = freeList;
+        freeList = x;
+    }
+
+    private void grow() {
+        int n = keys.length + (keys.length >> 1) + 1;
+        keys = Arrays.copyOf(keys, n);
+        infos = Arrays.copyOf(infos, n);
+        left = Arrays.copyOf(left, n);
+        right = Arrays.copyOf(right, n);
+        height = Arrays.copyOf(height, n);
+    }
+
+    /**
+     * private void replaceChild(int depth, int oldChild, int newChild)
+     * Puts newChild where oldChild hangs - under path[depth - 1], or at the root if depth is 0.
+     * Complexity: O(1)
+     */
+    private void replaceChild(int depth, int oldChild, int newChild) {
+        if (depth == 0) {
+            root = newChild;
+            return;
+        }
+        int p = path[depth - 1];
+        if (left[p] == oldChild) left[p] = newChild;
+        else right[p] = newChild;
+    }
+
+    /**
+     * private boolean update(int n)
+     * Recomputes the height of n from its children.
+     * Returns true if the height changed.
+     * Complexity: O(1)
+     */
+    private boolean update(int n) {
+        int h = Math.max(height[left[n]], height[right[n]]) + 1;
+        if (h == height[n]) return false;
+        height[n] = (byte) h;
+        return true;
+    }
+
+    private int getBalance(int n) {
+        return height[left[n]] - height[right[n]];
+    }
+
+    /**
+     * private int rebalanceUpwards(int depth)
+     * Walks up the path from path[depth - 1] to the root, fixing heights and balance.
+     * Returns the number of rebalancing operations, counted like AVLTree: the height change of the first node itself,
+     * then per node either its rotation (2, or 5 for a double one - the rotation fixes the heights) or its height
+     * change.
+     * Complexity: O(logn)
+     */
+    private int rebalanceUpwards(int depth) {
+        int counter = 0;
+        if (depth > 0 && update(path[depth - 1])) counter++;
+        for (int d = depth - 1; d >= 0; d--) {
+            int n = path[d];
+            int balance = getBalance(n);
+            if (balance > 1) {
+                if (getBalance(left[n]) < 0) {
+                    left[n] = rotateLeft(left[n]);
+                    counter += 5;
+                } else {
+                    counter += 2;
+                }
+                replaceChild(d, n, rotateRight(n));
+            } else if (balance < -1) {
+                if (getBalance(right[n]) > 0) {
+                    right[n] = rotateRight(right[n]);
+                    counter += 5;
+                } else {
+                    counter += 2;
+                }
+                replaceChild(d, n, rotateLeft(n));
+            } else if (update(n)) {
+                counter++;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * private int rotateLeft(int oldRoot)
+     * Rotates the subtree of oldRoot to the left and returns its new root, which the caller hangs in its place.
+     * Complexity: O(1)
+     */
+    private int rotateLeft(int oldRoot) {
+        int newRoot = right[oldRoot];
+        right[oldRoot] = left[newRoot];
+        left[newRoot] = oldRoot;
+        update(oldRoot); // have to update 'lower' node first
+        update(newRoot);
+        return newRoot;
+    }
+
+    /**
+     * private int rotateRight(int oldRoot)
+     * Rotates the subtree of oldRoot to the right and returns its new root, which the caller hangs in its place.
+     * Complexity: O(1)
+     */
+    private int rotateRight(int oldRoot) {
+        int newRoot = left[oldRoot];
+        left[oldRoot] = right[newRoot];
+        right[newRoot] = oldRoot;
+        update(oldRoot);
+        update(newRoot);
+        return newRoot;
+    }
+}
@@ -0,0 +1,99 @@
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArrayAVLTreeTest {
+
+    @org.junit.jupiter.api.Test
+    void init() {
+        ArrayAVLTree t1 = new ArrayAVLTree();
+        assertTrue(t1.empty());
+        assertEquals(-1, t1.getRank());
+        assertEquals(0, t1.size());
+        assertNull(t1.min());
+        assertNull(t1.max());
+        assertEquals(0, t1.keysToArray().length);
+    }
+
+    @org.junit.jupiter.api.Test
+    void insert() {
+        ArrayAVLTree t2 = new ArrayAVLTree();
+        assertEquals(0, t2.insert(43, "43"));
+        assertEquals(1, t2.insert(18, "18"));
+        assertEquals(-1, t2.insert(18, "18"));
+        assertEquals(6, t2.insert(22, "22")); // height change of 18, then an LR double rotation at 43
+        assertEquals(3, t2.size());
+        assertEquals(1, t2.getRank());
+        assertArrayEquals(new int[]{18, 22, 43}, t2.keysToArray());
+        assertArrayEquals(new String[]{"18", "22", "43"}, t2.infoToArray());
+    }
+
+    @org.junit.jupiter.api.Test
+    void freeListReusesSlots() {
+        ArrayAVLTree t1 = new ArrayAVLTree(100);
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 100; i++) t1.insert(i, "Key is " + i);
+            for (int i = 0; i < 100; i++) assertNotEquals(-1, t1.delete(i));
+        }
+        assertTrue(t1.empty());
+        assertEquals(100, t1.capacity());
+    }
+
+    @org.junit.jupiter.api.Test
+    void largeSequentialTree() {
+        ArrayAVLTree t1 = new ArrayAVLTree();
+        int n = 1 << 20;
+        for (int i = 0; i < n; i++) t1.insert(i, "v");
+        assertEquals(n, t1.size());
+        assertEquals(20, t1.getRank()); // sequential inserts into an AVL tree leave it perfectly balanced
+        int[] keys = t1.keysToArray();
+        for (int i = 0; i < n; i++) assertEquals(i, keys[i]);
+        for (int i = 0; i < n; i += 2) assertNotEquals(-1, t1.delete(i));
+        assertEquals(n / 2, t1.size());
+        assertEquals(1, t1.keysToArray()[0]);
+        for (int i = 1; i < n; i += 2) assertNotEquals(-1, t1.delete(i));
+        assertTrue(t1.empty());
+        assertEquals(0, t1.infoToArray().length);
+    }
+
+    @org.junit.jupiter.api.Test
+    void randomAgainstTreeMap() {
+        Random r = new Random(3);
+        ArrayAVLTree t1 = new ArrayAVLTree();
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        for (int i = 0; i < 20000; i++) {
+            int k = r.nextInt(2000);
+            if (r.nextInt(3) > 0) {
+                assertEquals(expected.containsKey(k), t1.insert(k, "v" + k) == -1);
+                expected.putIfAbsent(k, "v" + k);
+            } else {
+                assertEquals(!expected.containsKey(k), t1.delete(k) == -1);
+                expected.remove(k);
+            }
+        }
+        assertEquals(expected.size(), t1.size());
+        assertArrayEquals(expected.keySet().stream().mapToInt(Integer::intValue).toArray(), t1.keysToArray());
+        assertEquals(expected.firstEntry().getValue(), t1.min());
+        assertEquals(expected.lastEntry().getValue(), t1.max());
+        for (int k = 0; k < 2000; k++) assertEquals(expected.get(k), t1.search(k));
+        assertTrue(t1.getRank() <= 1.45 * Math.log(t1.size() + 2) / Math.log(2));
+    }
+
+    @org.junit.jupiter.api.Test
+    void countsLikeAVLTree() {
+        ArrayAVLTree t1 = new ArrayAVLTree();
+        AVLTree t2 = new AVLTree();
+        assertEquals(t2.insert(1, "1"), t1.insert(1, "1"));
+        assertEquals(t2.insert(2, "2"), t1.insert(2, "2"));
+        assertEquals(3, t2.insert(3, "3"));
+        assertEquals(3, t1.insert(3, "3"));
+        Random r = new Random(4);
+        for (int i = 0; i < 20000; i++) {
+            int k = r.nextInt(2000);
+            if (r.nextBoolean()) assertEquals(t2.insert(k, "v"), t1.insert(k, "v"), "insert " + k);
+            else assertEquals(t2.delete(k), t1.delete(k), "delete " + k);
+        }
+        assertArrayEquals(t2.keysToArray(), t1.keysToArray());
+    }
+}
@@ -0,0 +1,523 @@
+import java.util.Arrays;
+
+/**
+ * BPlusTree
+ * <p>
+ * A B+-tree with distinct integer keys and String info, with the same public operations as AVLTree
+ * (search, insert, delete, min, max, keysToArray, infoToArray, split, join).
+ * Nodes are wide (up to ORDER keys in primitive int arrays), so a lookup touches about log_ORDER(n) nodes
+ * instead of log_2(n), and the binary search inside a node runs over one contiguous array.
+ * All items live in the leaves, which are linked left to right for in-order scans.
+ * <p>
+ * Every node but the root is at least half full; a leaf holds ORDER / 2 .. ORDER items,
+ * an inner node ORDER / 2 .. ORDER children.
+ */
+public class BPlusTree {
+
+    static final int ORDER = 64;
+    private static final int MIN = ORDER / 2;
+
+    private Node root;
+    private int size;
+    private int height; // number of inner levels above the leaves, -1 for an empty tree
+
+    // results of the recursive insert/delete, kept in fields so the hot path allocates nothing
+    private int rebalanceOps; // splits / borrows + merges of the current operation, -1 if it was a no-op
+    private int separator; // separator key of the sibling returned by insert
+
+    /**
+     * static class Node
+     * A leaf (children == null) holds keys[0..count) and infos[0..count);
+     * an inner node holds count keys and count + 1 children, where keys[i] separates children[i] (keys < keys[i])
+     * from children[i + 1] (keys >= keys[i]).
+     * Arrays have one spare slot so a node can overflow by one before it is split.
+     */
+    static final class Node {
+        final int[] keys;
+        final String[] infos;
+        final Node[] children;
+        Node next; // next leaf
+        int count;
+
+        Node(boolean leaf) {
+            this.keys = new int[ORDER + 1];
+            this.infos = leaf ? new String[ORDER + 1] : null;
+            this.children = leaf ? null : new Node[ORDER + 2];
+        }
+
+        boolean isLeaf() {
+            return children == null;
+        }
+
+        /**
+         * int lowerBound(int k)
+         * Returns the first index i with keys[i] >= k (count if there is none).
+         * Complexity: O(log ORDER)
+         */
+        int lowerBound(int k) {
+            int lo = 0, hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid] < k) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        /**
+         * int childIndex(int k)
+         * Returns the index of the child of an inner node whose range holds k.
+         * Complexity: O(log ORDER)
+         */
+        int childIndex(int k) {
+            int i = lowerBound(k);
+            return i < count && keys[i] == k ? i + 1 : i;
+        }
+    }
+
+    /**
+     * public BPlusTree()
+     * BPlusTree constructor - an empty tree
+     * Complexity: O(1)
+     */
+    public BPlusTree() {
+        this.root = null;
+        this.size = 0;
+        this.height = -1;
+    }
+
+    /**
+     * public boolean empty()
+     * returns true if and only if the tree is empty
+     * Complexity: O(1)
+     */
+    public boolean empty() {
+        return size == 0;
+    }
+
+    /**
+     * public int size()
+     * Returns the number of items in the tree.
+     * Complexity: O(1)
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * public int getRank()
+     * Returns the number of inner levels above the leaves, -1 for an empty tree.
+     * Complexity: O(1)
+     */
+    public int getRank() {
+        return height;
+    }
+
+    /**
+     * public String search(int k)
+     * returns the info of an item with key k if it exists in the tree
+     * otherwise, returns null
+     * Complexity: O(logn)
+     */
+    public String search(int k) {
+        if (root == null) return null;
+        Node n = root;
+        while (!n.isLeaf()) n = n.children[n.childIndex(k)];
+        int i = n.lowerBound(k);
+        return i < n.count && n.keys[i] == k ? n.infos[i] : null;
+    }
+
+    /**
+     * public int insert(int k, String i)
+     * inserts an item with key k and info i to the tree.
+     * returns the number of node splits, or -1 if an item with key k already exists in the tree.
+     * Complexity: O(logn)
+     */
+    public int insert(int k, String i) {
+        if (root == null) {
+            root = new Node(true);
+            height = 0;
+        }
+        rebalanceOps = 0;
+        Node right = insert(root, k, i);
+        if (rebalanceOps < 0) return -1;
+        if (right != null) {
+            // the root was split - grow a level
+            Node newRoot = new Node(false);
+            newRoot.keys[0] = separator;
+            newRoot.children[0] = root;
+            newRoot.children[1] = right;
+            newRoot.count = 1;
+            root = newRoot;
+            height++;
+        }
+        size++;
+        return rebalanceOps;
+    }
+
+    /**
+     * private Node insert(Node n, int k, String i)
+     * Inserts under n. Returns the new right sibling if n had to be split (its separator key in `separator`),
+     * otherwise null. Counts the splits in rebalanceOps, or sets it to -1 if k exists.
+     */
+    private Node insert(Node n, int k, String i) {
+        if (n.isLeaf()) {
+            int pos = n.lowerBound(k);
+            if (pos < n.count && n.keys[pos] == k) {
+                rebalanceOps = -1;
+                return null;
+            }
+            System.arraycopy(n.keys, pos, n.keys, pos + 1, n.count - pos);
+            System.arraycopy(n.infos, pos, n.infos, pos + 1, n.count - pos);
+            n.keys[pos] = k;
+            n.infos[pos] = i;
+            n.count++;
+            if (n.count <= ORDER) return null;
+            rebalanceOps++;
+            Node right = splitLeaf(n);
+            separator = right.keys[0];
+            return right;
+        }
+        int c = n.childIndex(k);
+        Node right = insert(n.children[c], k, i);
+        if (right == null) return null;
+        // hang the new sibling right after children[c]
+        System.arraycopy(n.keys, c, n.keys, c + 1, n.count - c);
+        System.arraycopy(n.children, c + 1, n.children, c + 2, n.count - c);
+        n.keys[c] = separator;
+        n.children[c + 1] = right;
+        n.count++;
+        if (n.count < ORDER) return null; // at most ORDER children
+        rebalanceOps++;
+        separator = n.keys[n.count / 2]; // the middle key moves up
+        return splitInner(n);
+    }
+
+    private static Node splitLeaf(Node n) {
+        Node right = new Node(true);
+        int half = n.count / 2;
+        right.count = n.count - half;
+        System.arraycopy(n.keys, half, right.keys, 0, right.count);
+        System.arraycopy(n.infos, half, right.infos, 0, right.count);
+        Arrays.fill(n.infos, half, n.count, null);
+        n.count = half;
+        right.next = n.next;
+        n.next = right;
+        return right;
+    }
+
+    private static Node splitInner(Node n) {
+        // n has count keys, count + 1 children; the left half keeps `half` keys, the middle key moves up
+        Node right = new Node(false);
+        int half = n.count / 2;
+        right.count = n.count - half - 1;
+        System.arraycopy(n.keys, half + 1, right.keys, 0, right.count);
+        System.arraycopy(n.children, half + 1, right.children, 0, right.count + 1);
+        Arrays.fill(n.children, half + 1, n.count + 1, null);
+        n.count = half;
+        return right;
+    }
+
+    private static int smallestKey(Node n) {
+        while (!n.isLeaf()) n = n.children[0];
+        return n.keys[0];
+    }
+
+    /**
+     * public int delete(int k)
+     * deletes an item with key k from the tree, if it is there.
+     * returns the number of rebalancing operations (borrows from a sibling and merges),
+     * or -1 if an item with key k was not found in the tree.
+     * Complexity: O(logn)
+     */
+    public int delete(int k) {
+        if (root == null) return -1;
+        rebalanceOps = 0;
+        if (!delete(root, k)) return -1;
+        size--;
+        if (!root.isLeaf() && root.count == 0) {
+            root = root.children[0]; // shrink a level
+            height--;
+        } else if (root.isLeaf() && root.count == 0) {
+            root = null;
+            height = -1;
+        }
+        return rebalanceOps;
+    }
+
+    /**
+     * private boolean delete(Node n, int k)
+     * Deletes k under n, fixing underfull children on the way back up. Returns false if k wasn't found.
+     */
+    private boolean delete(Node n, int k) {
+        if (n.isLeaf()) {
+            int pos = n.lowerBound(k);
+            if (pos == n.count || n.keys[pos] != k) return false;
+            System.arraycopy(n.keys, pos + 1, n.keys, pos, n.count - pos - 1);
+            System.arraycopy(n.infos, pos + 1, n.infos, pos, n.count - pos - 1);
+            n.infos[--n.count] = null;
+            return true;
+        }
+        int c = n.childIndex(k);
+        if (!delete(n.children[c], k)) return false;
+        // a separator may now be smaller than every key under its child; it still routes correctly
+        if (childCount(n.children[c]) < MIN) {
+            rebalanceOps++;
+            fixUnderflow(n, c);
+        }
+        return true;
+    }
+
+    private static int childCount(Node n) {
+        return n.isLeaf() ? n.count : n.count + 1;
+    }
+
+    /**
+     * private void fixUnderflow(Node p, int c)
+     * children[c] of p is less than half full - borrow from a sibling that can spare one, or else merge with one.
+     * Complexity: O(ORDER)
+     */
+    private void fixUnderflow(Node p, int c) {
+        Node child = p.children[c];
+        Node left = c > 0 ? p.children[c - 1] : null;
+        Node right = c < p.count ? p.children[c + 1] : null;
+        if (left != null && childCount(left) > MIN) {
+            borrowFromLeft(p, c, left, child);
+        } else if (right != null && childCount(right) > MIN) {
+            borrowFromRight(p, c, child, right);
+        } else if (left != null) {
+            merge(p, c - 1, left, child);
+        } else {
+            merge(p, c, child, right);
+        }
+    }
+
+    private void borrowFromLeft(Node p, int c, Node left, Node child) {
+        if (child.isLeaf()) {
+            System.arraycopy(child.keys, 0, child.keys, 1, child.count);
+            System.arraycopy(child.infos, 0, child.infos, 1, child.count);
+            child.keys[0] = left.keys[left.count - 1];
+            child.infos[0] = left.infos[left.count - 1];
+            left.infos[--left.count] = null;
+            child.count++;
+            p.keys[c - 1] = child.keys[0];
+        } else {
+            System.arraycopy(child.keys, 0, child.keys, 1, child.count);
+            System.arraycopy(child.children, 0, child.children, 1, child.count + 1);
+            child.keys[0] = p.keys[c - 1];
+            child.children[0] = left.children[left.count];
+            child.count++;
+            p.keys[c - 1] = left.keys[left.count - 1];
+            left.children[left.count] = null;
+            left.count--;
+        }
+    }
+
+    private void borrowFromRight(Node p, int c, Node child, Node right) {
+        if (child.isLeaf()) {
+            child.keys[child.count] = right.keys[0];
+            child.infos[child.count] = right.infos[0];
+            child.count++;
+            System.arraycopy(right.keys, 1, right.keys, 0, right.count - 1);
+            System.arraycopy(right.infos, 1, right.infos, 0, right.count - 1);
+            right.infos[--right.count] = null;
+            p.keys[c] = right.keys[0];
+        } else {
+            child.keys[child.count] = p.keys[c];
+            child.children[child.count + 1] = right.children[0];
+            child.count++;
+            p.keys[c] = right.keys[0];
+            System.arraycopy(right.keys, 1, right.keys, 0, right.count - 1);
+            System.arraycopy(right.children, 1, right.children, 0, right.count);
+            right.children[right.count] = null;
+            right.count--;
+        }
+    }
+
+    /**
+     * private void merge(Node p, int i, Node left, Node right)
+     * Moves everything from right = p.children[i + 1] into left = p.children[i] and removes right from p.
+     * Complexity: O(ORDER)
+     */
+    private void merge(Node p, int i, Node left, Node right) {
+        if (left.isLeaf()) {
+            System.arraycopy(right.keys, 0, left.keys, left.count, right.count);
+            System.arraycopy(right.infos, 0, left.infos, left.count, right.count);
+            left.count += right.count;
+            left.next = right.next;
+        } else {
+            left.keys[left.count] = p.keys[i];
+            System.arraycopy(right.keys, 0, left.keys, left.count + 1, right.count);
+            System.arraycopy(right.children, 0, left.children, left.count + 1, right.count + 1);
+            left.count += right.count + 1;
+        }
+        System.arraycopy(p.keys, i + 1, p.keys, i, p.count - i - 1);
+        System.arraycopy(p.children, i + 2, p.children, i + 1, p.count - i - 1);
+        p.children[p.count] = null;
+        p.count--;
+    }
+
+    /**
+     * public String min()
+     * Returns the info of the item with the smallest key in the tree, or null if the tree is empty
+     * Complexity: O(logn)
+     */
+    public String min() {
+        Node n = firstLeaf();
+        return n == null ? null : n.infos[0];
+    }
+
+    /**
+     * public String max()
+     * Returns the info of the item with the largest key in the tree, or null if the tree is empty
+     * Complexity: O(logn)
+     */
+    public String max() {
+        if (root == null) return null;
+        Node n = root;
+        while (!n.isLeaf()) n = n.children[n.count];
+        return n.infos[n.count - 1];
+    }
+
+    private Node firstLeaf() {
+        if (root == null) return null;
+        Node n = root;
+        while (!n.isLeaf()) n = n.children[0];
+        return n;
+    }
+
+    /**
+     * public int[] keysToArray()
+     * Returns a sorted array which contains all keys in the tree. Scans the linked leaves.
+     * Complexity: O(n)
+     */
+    public int[] keysToArray() {
+        int[] arr = new int[size];
+        int i = 0;
+        for (Node n = firstLeaf(); n != null; n = n.next) {
+            System.arraycopy(n.keys, 0, arr, i, n.count);
+            i += n.count;
+        }
+        return arr;
+    }
+
+    /**
+     * public String[] infoToArray()
+     * Returns an array which contains all info in the tree, sorted by their respective keys. Scans the linked leaves.
+     * Complexity: O(n)
+     */
+    public String[] infoToArray() {
+        String[] arr = new String[size];
+        int i = 0;
+        for (Node n = firstLeaf(); n != null; n = n.next) {
+            System.arraycopy(n.infos, 0, arr, i, n.count);
+            i += n.count;
+        }
+        return arr;
+    }
+
+    /**
+     * public BPlusTree[] split(int x)
+     * splits the tree into 2 trees according to the key x.
+     * Returns an array [t1, t2] with two trees. keys(t1) < x < keys(t2).
+     * The leaves are scanned and both halves are bulk-loaded, so unlike AVLTree.split this is linear;
+     * x doesn't have to be in the tree.
+     * Complexity: O(n)
+     */
+    public BPlusTree[] split(int x) {
+        int[] keys = keysToArray();
+        String[] infos = infoToArray();
+        int lo = Arrays.binarySearch(keys, x);
+        int leftEnd = lo >= 0 ? lo : -lo - 1;
+        int rightStart = lo >= 0 ? lo + 1 : leftEnd;
+        return new BPlusTree[]{
+                fromSorted(Arrays.copyOfRange(keys, 0, leftEnd), Arrays.copyOfRange(infos, 0, leftEnd)),
+                fromSorted(Arrays.copyOfRange(keys, rightStart, keys.length), Arrays.copyOfRange(infos, rightStart, keys.length))
+        };
+    }
+
+    /**
+     * public int join(int k, String i, BPlusTree t)
+     * joins t and the item k -> i into this tree (t shouldn't be used afterwards).
+     * Returns the difference of the ranks + 1, like AVLTree.join.
+     * precondition: keys(t) < k < keys() or keys() < k < keys(t)
+     * The leaves of both trees are scanned and the result is bulk-loaded.
+     * Complexity: O(n)
+     */
+    public int join(int k, String i, BPlusTree t) {
+        int result = Math.abs(this.getRank() - t.getRank()) + 1;
+        boolean thisIsSmaller = (!this.empty() && max(this) < k) || (!t.empty() && max(t) > k);
+        BPlusTree small = thisIsSmaller ? this : t;
+        BPlusTree big = thisIsSmaller ? t : this;
+        int n = small.size + 1 + big.size;
+        int[] keys = new int[n];
+        String[] infos = new String[n];
+        System.arraycopy(small.keysToArray(), 0, keys, 0, small.size);
+        System.arraycopy(small.infoToArray(), 0, infos, 0, small.size);
+        keys[small.size] = k;
+        infos[small.size] = i;
+        System.arraycopy(big.keysToArray(), 0, keys, small.size + 1, big.size);
+        System.arraycopy(big.infoToArray(), 0, infos, small.size + 1, big.size);
+        BPlusTree joined = fromSorted(keys, infos);
+        this.root = joined.root;
+        this.size = joined.size;
+        this.height = joined.height;
+        return result;
+    }
+
+    private static int max(BPlusTree t) {
+        Node n = t.root;
+        while (!n.isLeaf()) n = n.children[n.count];
+        return n.keys[n.count - 1];
+    }
+
+    /**
+     * public static BPlusTree fromSorted(int[] keys, String[] infos)
+     * Bulk-loads a tree from strictly increasing keys: leaves are filled evenly (so each is at least half full)
+     * and linked, then each inner level is built over the level below.
+     * Complexity: O(n)
+     */
+    public static BPlusTree fromSorted(int[] keys, String[] infos) {
+        if (keys.length != infos.length)
+            throw new IllegalArgumentException("got " + keys.length + " keys but " + infos.length + " infos");
+        BPlusTree t = new BPlusTree();
+        int n = keys.length;
+        if (n == 0) return t;
+        for (int j = 1; j < n; j++) {
+            if (keys[j] <= keys[j - 1])
+                throw new IllegalArgumentException("keys must be strictly increasing, got " + keys[j] + " after " + keys[j - 1]);
+        }
+        int leaves = (n + ORDER - 1) / ORDER;
+        Node[] level = new Node[leaves];
+        for (int l = 0, from = 0; l < leaves; l++) {
+            int count = n / leaves + (l < n % leaves ? 1 : 0);
+            Node leaf = new Node(true);
+            System.arraycopy(keys, from, leaf.keys, 0, count);
+            System.arraycopy(infos, from, leaf.infos, 0, count);
+            leaf.count = count;
+            if (l > 0) level[l - 1].next = leaf;
+            level[l] = leaf;
+            from += count;
+        }
+        int height = 0;
+        while (level.length > 1) {
+            int parents = (level.length + ORDER - 1) / ORDER;
+            Node[] up = new Node[parents];
+            for (int p = 0, from = 0; p < parents; p++) {
+                int count = level.length / parents + (p < level.length % parents ? 1 : 0);
+                Node inner = new Node(false);
+                System.arraycopy(level, from, inner.children, 0, count);
+                for (int j = 1; j < count; j++) inner.keys[j - 1] = smallestKey(level[from + j]);
+                inner.count = count - 1;
+                up[p] = inner;
+                from += count;
+            }
+            level = up;
+            height++;
+        }
+        t.root = level[0];
+        t.size = n;
+        t.height = height;
+        return t;
+    }
+}
@@ -0,0 +1,86 @@
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BPlusTreeTest {
+
+    private static int[] keys(java.util.Map<Integer, String> m) {
+        return m.keySet().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @org.junit.jupiter.api.Test
+    void init() {
+        BPlusTree t1 = new BPlusTree();
+        assertTrue(t1.empty());
+        assertEquals(-1, t1.getRank());
+        assertNull(t1.min());
+        assertNull(t1.max());
+        assertNull(t1.search(1));
+        assertEquals(-1, t1.delete(1));
+    }
+
+    @org.junit.jupiter.api.Test
+    void insert() {
+        BPlusTree t1 = new BPlusTree();
+        for (int i = 0; i < BPlusTree.ORDER; i++) {
+            assertEquals(0, t1.insert(i, "Key is " + i));
+        }
+        assertEquals(-1, t1.insert(5, "again"));
+        assertEquals(0, t1.getRank());
+        assertEquals(1, t1.insert(BPlusTree.ORDER, "split")); // the root leaf overflows
+        assertEquals(1, t1.getRank());
+        assertEquals("Key is 5", t1.search(5));
+        assertEquals("split", t1.max());
+    }
+
+    @org.junit.jupiter.api.Test
+    void randomAgainstTreeMap() {
+        Random r = new Random(13);
+        BPlusTree t1 = new BPlusTree();
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        for (int i = 0; i < 200000; i++) {
+            int k = r.nextInt(20000);
+            if (r.nextInt(5) < 3) {
+                assertEquals(expected.containsKey(k), t1.insert(k, "v" + k) == -1);
+                expected.putIfAbsent(k, "v" + k);
+            } else {
+                assertEquals(!expected.containsKey(k), t1.delete(k) == -1);
+                expected.remove(k);
+            }
+        }
+        assertEquals(expected.size(), t1.size());
+        assertArrayEquals(keys(expected), t1.keysToArray());
+        assertArrayEquals(expected.values().toArray(new String[0]), t1.infoToArray());
+        for (int k = 0; k < 20000; k++) assertEquals(expected.get(k), t1.search(k));
+        assertEquals(expected.firstEntry().getValue(), t1.min());
+        assertEquals(expected.lastEntry().getValue(), t1.max());
+
+        // and down to empty again
+        for (int k : keys(expected)) assertNotEquals(-1, t1.delete(k));
+        assertTrue(t1.empty());
+        assertEquals(-1, t1.getRank());
+    }
+
+    @org.junit.jupiter.api.Test
+    void splitAndJoin() {
+        BPlusTree t1 = new BPlusTree();
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        for (int i = 0; i < 10000; i += 2) {
+            t1.insert(i, "Key is " + i);
+            expected.put(i, "Key is " + i);
+        }
+        BPlusTree[] parts = t1.split(5000);
+        assertArrayEquals(keys(expected.headMap(5000)), parts[0].keysToArray());
+        assertArrayEquals(keys(expected.tailMap(5000, false)), parts[1].keysToArray());
+        parts[1].insert(5001, "5001"); // the halves are regular trees
+        assertEquals(1, parts[1].join(5000, "Key is 5000", parts[0]));
+        assertEquals(5001, parts[1].size());
+        assertEquals("Key is 5000", parts[1].search(5000));
+        assertEquals("Key is 0", parts[1].min());
+        assertEquals(-1, parts[1].insert(5001, "5001"));
+
+        BPlusTree[] odd = t1.split(5001); // x doesn't have to be in the tree
+        assertEquals(2501, odd[0].size());
+    }
+}
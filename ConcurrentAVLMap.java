@@ -0,0 +1,591 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ConcurrentAVLMap
+ * <p>
+ * A thread-safe AVL tree map from int keys to non-null values, after Bronson, Casper, Chafi and Olukotun,
+ * "A Practical Concurrent Binary Search Tree" (PPoPP 2010).
+ * <p>
+ * Reads take no locks at all. Every node carries a version number which a rotation changes when it moves
+ * the node down; a reader validates the version of each node it passed through (hand-over-hand optimistic
+ * validation) and retries from the parent if it changed under it.
+ * Writers lock only the nodes they modify: put locks the parent of a new leaf, remove locks the node
+ * and its parent, and a rotation locks the parent, the node and the children it moves.
+ * <p>
+ * Removing a node with two children only clears its value, leaving a "routing node" in place; routing nodes
+ * are unlinked later, once they lose a child, by the rebalancing pass.
+ * The tree is relaxed-balanced: heights may be briefly stale while concurrent updates are in flight,
+ * and are repaired by fixHeightAndRebalance walking up from the damaged node.
+ *
+ * @param <V> type of the values
+ */
+public class ConcurrentAVLMap<V> {
+
+    // version bits - a node is unlinked, or shrinking (being rotated down) with a count of completed shrinks
+    private static final long UNLINKED = 1L;
+    private static final long SHRINKING = 2L;
+    private static final long SHRINK_COUNT_INCR = 4L;
+
+    // nodeCondition results which are not heights
+    private static final int UNLINK_REQUIRED = -1;
+    private static final int REBALANCE_REQUIRED = -2;
+    private static final int NOTHING_REQUIRED = -3;
+
+    private static final int SPIN_COUNT = 100;
+
+    // returned by attemptGet/attemptUpdate when the caller has to retry from the parent
+    private static final Object RETRY = new Object();
+
+    /**
+     * static class Node
+     * A tree node. Heights count nodes, so a leaf has height 1 and a missing child height 0.
+     * value == null marks a routing node (a removed key which still has two children).
+     */
+    static final class Node {
+        final int key;
+        volatile int height;
+        volatile long version;
+        volatile Object value;
+        volatile Node parent;
+        volatile Node left;
+        volatile Node right;
+
+        Node(int key, int height, Object value, long version, Node parent, Node left, Node right) {
+            this.key = key;
+            this.height = height;
+            this.value = value;
+            this.version = version;
+            this.parent = parent;
+            this.left = left;
+            this.right = right;
+        }
+
+        Node child(int dir) {
+            return dir < 0 ? left : right;
+        }
+
+        void setChild(int dir, Node node) {
+            if (dir < 0) left = node;
+            else right = node;
+        }
+    }
+
+    // the actual root is rootHolder.right; rootHolder is never rotated, so its version never changes
+    private final Node rootHolder = new Node(Integer.MIN_VALUE, 1, null, 0L, null, null, null);
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * public int size()
+     * Returns the number of keys in the map. Exact when no update is in flight.
+     * Complexity: O(number of threads)
+     */
+    public int size() {
+        return count.intValue();
+    }
+
+    /**
+     * public boolean isEmpty()
+     * returns true if and only if the map has no keys
+     * Complexity: O(number of threads)
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * public int getRank()
+     * Returns the height of the tree (-1 for an empty map), like AVLTree.getRank.
+     * Complexity: O(1)
+     */
+    public int getRank() {
+        return height(rootHolder.right) - 1;
+    }
+
+    /**
+     * public V get(int k)
+     * returns the value mapped to k, or null if k isn't in the map. Lock free.
+     * Complexity: O(logn) when there's no contention
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int k) {
+        while (true) {
+            Object result = attemptGet(k, rootHolder, 1, rootHolder.version);
+            if (result != RETRY) return (V) result;
+        }
+    }
+
+    /**
+     * public boolean containsKey(int k)
+     * returns true if and only if k is in the map. Lock free.
+     * Complexity: O(logn) when there's no contention
+     */
+    public boolean containsKey(int k) {
+        return get(k) != null;
+    }
+
+    /**
+     * public V put(int k, V v)
+     * maps k to v. Returns the previous value of k, or null if k wasn't in the map.
+     * Throws NullPointerException if v is null.
+     * Complexity: O(logn) when there's no contention
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int k, V v) {
+        if (v == null) throw new NullPointerException("null values are not supported");
+        return (V) update(k, v);
+    }
+
+    /**
+     * public V remove(int k)
+     * removes k from the map. Returns its value, or null if k wasn't in the map.
+     * Complexity: O(logn) when there's no contention
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int k) {
+        return (V) update(k, null);
+    }
+
+    private Object update(int k, Object newValue) {
+        while (true) {
+            Object result = attemptUpdate(k, newValue, rootHolder, 1, rootHolder.version);
+            if (result != RETRY) return result;
+        }
+    }
+
+    private static int height(Node n) {
+        return n == null ? 0 : n.height;
+    }
+
+    /**
+     * private static void waitUntilNotChanging(Node n)
+     * Spins while n is being rotated, then blocks on its lock (the rotating thread holds it).
+     */
+    private static void waitUntilNotChanging(Node n) {
+        long v = n.version;
+        if ((v & SHRINKING) == 0) return;
+        for (int i = 0; i < SPIN_COUNT; i++) {
+            if (n.version != v) return;
+            Thread.onSpinWait();
+        }
+        synchronized (n) {
+            // the rotation is done once we get the lock
+        }
+    }
+
+    /**
+     * private Object attemptGet(int k, Node node, int dirToC, long nodeV)
+     * Searches for k below node, which was read at version nodeV.
+     * Returns RETRY if node changed since, so the caller has to re-read it.
+     */
+    private Object attemptGet(int k, Node node, int dirToC, long nodeV) {
+        while (true) {
+            Node child = node.child(dirToC);
+            if (node.version != nodeV) return RETRY;
+            if (child == null) return null;
+            int childCmp = Integer.compare(k, child.key);
+            if (childCmp == 0) return child.value; // null for a routing node
+            long childV = child.version;
+            if ((childV & SHRINKING) != 0) {
+                waitUntilNotChanging(child);
+            } else if (childV != UNLINKED && child == node.child(dirToC)) {
+                // child was reached validly, so hand over to it
+                if (node.version != nodeV) return RETRY;
+                Object result = attemptGet(k, child, childCmp, childV);
+                if (result != RETRY) return result;
+            }
+            // otherwise re-read the child and try again from this node
+        }
+    }
+
+    /**
+     * private Object attemptUpdate(int k, Object newValue, Node node, int dirToC, long nodeV)
+     * Puts (newValue != null) or removes (newValue == null) k below node, which was read at version nodeV.
+     * Returns the previous value, or RETRY if node changed since.
+     */
+    private Object attemptUpdate(int k, Object newValue, Node node, int dirToC, long nodeV) {
+        while (true) {
+            Node child = node.child(dirToC);
+            if (node.version != nodeV) return RETRY;
+            if (child == null) {
+                if (newValue == null) return null; // removing a missing key
+                boolean inserted;
+                synchronized (node) {
+                    if (node.version != nodeV) return RETRY;
+                    inserted = node.child(dirToC) == null;
+                    if (inserted) node.setChild(dirToC, new Node(k, 1, newValue, 0L, node, null, null));
+                }
+                if (inserted) {
+                    count.increment();
+                    fixHeightAndRebalance(node);
+                    return null;
+                }
+                // someone else hung a node there first - look again
+            } else {
+                int childCmp = Integer.compare(k, child.key);
+                if (childCmp == 0) return attemptNodeUpdate(newValue, node, child);
+                long childV = child.version;
+                if ((childV & SHRINKING) != 0) {
+                    waitUntilNotChanging(child);
+                } else if (childV != UNLINKED && child == node.child(dirToC)) {
+                    if (node.version != nodeV) return RETRY;
+                    Object result = attemptUpdate(k, newValue, child, childCmp, childV);
+                    if (result != RETRY) return result;
+                }
+            }
+        }
+    }
+
+    /**
+     * private Object attemptNodeUpdate(Object newValue, Node parent, Node node)
+     * Sets the value of node (newValue != null) or removes it (newValue == null).
+     * A node with less than two children is unlinked under the locks of parent and node;
+     * a binary node only loses its value and stays as a routing node.
+     * Returns the previous value, or RETRY.
+     */
+    private Object attemptNodeUpdate(Object newValue, Node parent, Node node) {
+        if (newValue == null && node.value == null) return null; // already removed
+        if (newValue == null && (node.left == null || node.right == null)) {
+            Object prev;
+            synchronized (parent) {
+                if (parent.version == UNLINKED || node.parent != parent) return RETRY;
+                synchronized (node) {
+                    prev = node.value;
+                    if (prev == null) return null;
+                    if (!attemptUnlink_nl(parent, node)) return RETRY;
+                }
+            }
+            count.decrement();
+            fixHeightAndRebalance(parent);
+            return prev;
+        }
+        Object prev;
+        synchronized (node) {
+            if (node.version == UNLINKED) return RETRY;
+            prev = node.value;
+            // the node may have lost a child since we looked, then it has to be unlinked instead
+            if (newValue == null && (node.left == null || node.right == null)) return RETRY;
+            node.value = newValue;
+        }
+        if (prev == null && newValue != null) count.increment();
+        else if (prev != null && newValue == null) count.decrement();
+        return prev;
+    }
+
+    /**
+     * private boolean attemptUnlink_nl(Node parent, Node node)
+     * Splices node (which has at most one child) out of the tree.
+     * Caller holds the locks of parent and node. Returns false if the shape changed meanwhile.
+     */
+    private boolean attemptUnlink_nl(Node parent, Node node) {
+        Node parentL = parent.left;
+        Node parentR = parent.right;
+        if (parentL != node && parentR != node) return false; // node was rotated away from parent
+        Node left = node.left;
+        Node right = node.right;
+        if (left != null && right != null) return false; // node became binary
+        Node splice = left != null ? left : right;
+        if (parentL == node) parent.left = splice;
+        else parent.right = splice;
+        if (splice != null) splice.parent = parent;
+        node.version = UNLINKED;
+        node.value = null;
+        return true;
+    }
+
+    /**
+     * private int nodeCondition(Node node)
+     * Returns UNLINK_REQUIRED for a routing node with less than two children, REBALANCE_REQUIRED if
+     * the balance is off by 2, NOTHING_REQUIRED if the node is fine, or else its correct height.
+     */
+    private int nodeCondition(Node node) {
+        Node nL = node.left;
+        Node nR = node.right;
+        if ((nL == null || nR == null) && node.value == null) return UNLINK_REQUIRED;
+        int hN = node.height;
+        int hL0 = height(nL);
+        int hR0 = height(nR);
+        int hNRepl = 1 + Math.max(hL0, hR0);
+        int bal = hL0 - hR0;
+        if (bal < -1 || bal > 1) return REBALANCE_REQUIRED;
+        return hN != hNRepl ? hNRepl : NOTHING_REQUIRED;
+    }
+
+    /**
+     * private void fixHeightAndRebalance(Node node)
+     * Repairs heights and balance from node upwards, until a node needs nothing.
+     * Each step locks at most the node's parent, the node and the children a rotation moves.
+     * Complexity: O(logn) when there's no contention
+     */
+    private void fixHeightAndRebalance(Node node) {
+        while (node != null && node.parent != null) {
+            int condition = nodeCondition(node);
+            if (condition == NOTHING_REQUIRED || node.version == UNLINKED) return;
+            if (condition != UNLINK_REQUIRED && condition != REBALANCE_REQUIRED) {
+                synchronized (node) {
+                    node = fixHeight_nl(node);
+                }
+            } else {
+                Node nParent = node.parent;
+                synchronized (nParent) {
+                    if (nParent.version != UNLINKED && node.parent == nParent) {
+                        synchronized (node) {
+                            node = rebalance_nl(nParent, node);
+                        }
+                    }
+                    // else node moved meanwhile - look at it again
+                }
+            }
+        }
+    }
+
+    /**
+     * private Node fixHeight_nl(Node node)
+     * Updates the height of node. Caller holds its lock.
+     * Returns the next node that needs attention, or null.
+     */
+    private Node fixHeight_nl(Node node) {
+        int c = nodeCondition(node);
+        switch (c) {
+            case REBALANCE_REQUIRED:
+            case UNLINK_REQUIRED:
+                return node;
+            case NOTHING_REQUIRED:
+                return null;
+            default:
+                node.height = c;
+                return node.parent; // the parent's height may depend on ours
+        }
+    }
+
+    /**
+     * private Node rebalance_nl(Node nParent, Node n)
+     * Unlinks, rotates or fixes the height of n. Caller holds the locks of nParent and n.
+     * Returns the next node that needs attention, or null.
+     */
+    private Node rebalance_nl(Node nParent, Node n) {
+        Node nL = n.left;
+        Node nR = n.right;
+        if ((nL == null || nR == null) && n.value == null) {
+            if (attemptUnlink_nl(nParent, n)) return fixHeight_nl(nParent);
+            return n; // retry
+        }
+        int hN = n.height;
+        int hL0 = height(nL);
+        int hR0 = height(nR);
+        int hNRepl = 1 + Math.max(hL0, hR0);
+        int bal = hL0 - hR0;
+        if (bal > 1) return rebalanceToRight_nl(nParent, n, nL, hR0);
+        if (bal < -1) return rebalanceToLeft_nl(nParent, n, nR, hL0);
+        if (hNRepl != hN) {
+            n.height = hNRepl;
+            return fixHeight_nl(nParent);
+        }
+        return null;
+    }
+
+    /**
+     * private Node rebalanceToRight_nl(Node nParent, Node n, Node nL, int hR0)
+     * n is left-heavy: single right rotation (LL case) or double rotation (LR case), as in AVLTree.rebalance.
+     */
+    private Node rebalanceToRight_nl(Node nParent, Node n, Node nL, int hR0) {
+        synchronized (nL) {
+            int hL = nL.height;
+            if (hL - hR0 <= 1) return n; // retry
+            Node nLR = nL.right;
+            int hLL0 = height(nL.left);
+            int hLR0 = height(nLR);
+            if (hLL0 >= hLR0) return rotateRight_nl(nParent, n, nL, hR0, hLL0, nLR, hLR0);
+            synchronized (nLR) {
+                int hLR = nLR.height;
+                if (hLL0 >= hLR) return rotateRight_nl(nParent, n, nL, hR0, hLL0, nLR, hLR);
+                int hLRL = height(nLR.left);
+                int b = hLL0 - hLRL;
+                if (b >= -1 && b <= 1 && !((hLL0 == 0 || hLRL == 0) && nL.value == null)) {
+                    return rotateRightOverLeft_nl(nParent, n, nL, hR0, hLL0, nLR, hLRL);
+                }
+            }
+            // the double rotation would leave nL unbalanced, so fix nL first
+            return rebalanceToLeft_nl(n, nL, nLR, hLL0);
+        }
+    }
+
+    /**
+     * private Node rebalanceToLeft_nl(Node nParent, Node n, Node nR, int hL0)
+     * n is right-heavy: single left rotation (RR case) or double rotation (RL case).
+     */
+    private Node rebalanceToLeft_nl(Node nParent, Node n, Node nR, int hL0) {
+        synchronized (nR) {
+            int hR = nR.height;
+            if (hL0 - hR >= -1) return n; // retry
+            Node nRL = nR.left;
+            int hRL0 = height(nRL);
+            int hRR0 = height(nR.right);
+            if (hRR0 >= hRL0) return rotateLeft_nl(nParent, n, hL0, nR, nRL, hRL0, hRR0);
+            synchronized (nRL) {
+                int hRL = nRL.height;
+                if (hRR0 >= hRL) return rotateLeft_nl(nParent, n, hL0, nR, nRL, hRL, hRR0);
+                int hRLR = height(nRL.right);
+                int b = hRR0 - hRLR;
+                if (b >= -1 && b <= 1 && !((hRR0 == 0 || hRLR == 0) && nR.value == null)) {
+                    return rotateLeftOverRight_nl(nParent, n, hL0, nR, nRL, hRR0, hRLR);
+                }
+            }
+            return rebalanceToRight_nl(n, nR, nRL, hRR0);
+        }
+    }
+
+    private static long beginChange(long ovl) {
+        return ovl | SHRINKING;
+    }
+
+    private static long endChange(long ovl) {
+        return (ovl | SHRINKING) + SHRINK_COUNT_INCR & ~SHRINKING;
+    }
+
+    private static void replaceChild(Node nParent, Node oldChild, Node newChild) {
+        if (nParent.left == oldChild) nParent.left = newChild;
+        else nParent.right = newChild;
+        newChild.parent = nParent;
+    }
+
+    /**
+     * private Node rotateRight_nl(Node nParent, Node n, Node nL, int hR, int hLL, Node nLR, int hLR)
+     * Rotates n down to the right. n is marked as shrinking while its subtree loses keys.
+     * Returns the next node that needs attention, or null.
+     */
+    private Node rotateRight_nl(Node nParent, Node n, Node nL, int hR, int hLL, Node nLR, int hLR) {
+        long nodeOVL = n.version;
+        n.version = beginChange(nodeOVL);
+
+        n.left = nLR;
+        if (nLR != null) nLR.parent = n;
+        nL.right = n;
+        n.parent = nL;
+        replaceChild(nParent, n, nL);
+
+        int hNRepl = 1 + Math.max(hLR, hR);
+        n.height = hNRepl;
+        nL.height = 1 + Math.max(hLL, hNRepl);
+
+        n.version = endChange(nodeOVL);
+
+        int balN = hLR - hR;
+        if (balN < -1 || balN > 1) return n;
+        if ((nLR == null || hR == 0) && n.value == null) return n;
+        int balL = hLL - hNRepl;
+        if (balL < -1 || balL > 1) return nL;
+        if (hLL == 0 && nL.value == null) return nL;
+        return fixHeight_nl(nParent);
+    }
+
+    /**
+     * private Node rotateLeft_nl(Node nParent, Node n, int hL, Node nR, Node nRL, int hRL, int hRR)
+     * Mirror image of rotateRight_nl.
+     */
+    private Node rotateLeft_nl(Node nParent, Node n, int hL, Node nR, Node nRL, int hRL, int hRR) {
+        long nodeOVL = n.version;
+        n.version = beginChange(nodeOVL);
+
+        n.right = nRL;
+        if (nRL != null) nRL.parent = n;
+        nR.left = n;
+        n.parent = nR;
+        replaceChild(nParent, n, nR);
+
+        int hNRepl = 1 + Math.max(hL, hRL);
+        n.height = hNRepl;
+        nR.height = 1 + Math.max(hNRepl, hRR);
+
+        n.version = endChange(nodeOVL);
+
+        int balN = hRL - hL;
+        if (balN < -1 || balN > 1) return n;
+        if ((nRL == null || hL == 0) && n.value == null) return n;
+        int balR = hRR - hNRepl;
+        if (balR < -1 || balR > 1) return nR;
+        if (hRR == 0 && nR.value == null) return nR;
+        return fixHeight_nl(nParent);
+    }
+
+    /**
+     * private Node rotateRightOverLeft_nl(Node nParent, Node n, Node nL, int hR, int hLL, Node nLR, int hLRL)
+     * Double rotation (LR case): nLR becomes the root of the subtree, both n and nL move down.
+     */
+    private Node rotateRightOverLeft_nl(Node nParent, Node n, Node nL, int hR, int hLL, Node nLR, int hLRL) {
+        long nodeOVL = n.version;
+        long leftOVL = nL.version;
+        Node nLRL = nLR.left;
+        Node nLRR = nLR.right;
+        int hLRR = height(nLRR);
+
+        n.version = beginChange(nodeOVL);
+        nL.version = beginChange(leftOVL);
+
+        n.left = nLRR;
+        if (nLRR != null) nLRR.parent = n;
+        nL.right = nLRL;
+        if (nLRL != null) nLRL.parent = nL;
+        nLR.left = nL;
+        nL.parent = nLR;
+        nLR.right = n;
+        n.parent = nLR;
+        replaceChild(nParent, n, nLR);
+
+        int hNRepl = 1 + Math.max(hLRR, hR);
+        n.height = hNRepl;
+        int hLRepl = 1 + Math.max(hLL, hLRL);
+        nL.height = hLRepl;
+        nLR.height = 1 + Math.max(hLRepl, hNRepl);
+
+        n.version = endChange(nodeOVL);
+        nL.version = endChange(leftOVL);
+
+        int balN = hLRR - hR;
+        if (balN < -1 || balN > 1) return n;
+        if ((nLRR == null || hR == 0) && n.value == null) return n;
+        int balLR = hLRepl - hNRepl;
+        if (balLR < -1 || balLR > 1) return nLR;
+        return fixHeight_nl(nParent);
+    }
+
+    /**
+     * private Node rotateLeftOverRight_nl(Node nParent, Node n, int hL, Node nR, Node nRL, int hRR, int hRLR)
+     * Double rotation (RL case), mirror image of rotateRightOverLeft_nl.
+     */
+    private Node rotateLeftOverRight_nl(Node nParent, Node n, int hL, Node nR, Node nRL, int hRR, int hRLR) {
+        long nodeOVL = n.version;
+        long rightOVL = nR.version;
+        Node nRLL = nRL.left;
+        Node nRLR = nRL.right;
+        int hRLL = height(nRLL);
+
+        n.version = beginChange(nodeOVL);
+        nR.version = beginChange(rightOVL);
+
+        n.right = nRLL;
+        if (nRLL != null) nRLL.parent = n;
+        nR.left = nRLR;
+        if (nRLR != null) nRLR.parent = nR;
+        nRL.right = nR;
+        nR.parent = nRL;
+        nRL.left = n;
+        n.parent = nRL;
+        replaceChild(nParent, n, nRL);
+
+        int hNRepl = 1 + Math.max(hL, hRLL);
+        n.height = hNRepl;
+        int hRRepl = 1 + Math.max(hRLR, hRR);
+        nR.height = hRRepl;
+        nRL.height = 1 + Math.max(hNRepl, hRRepl);
+
+        n.version = endChange(nodeOVL);
+        nR.version = endChange(rightOVL);
+
+        int balN = hRLL - hL;
+        if (balN < -1 || balN > 1) return n;
+        if ((nRLL == null || hL == 0) && n.value == null) return n;
+        int balRL = hRRepl - hNRepl;
+        if (balRL < -1 || balRL > 1) return nRL;
+        return fixHeight_nl(nParent);
+    }
+}
@@ -0,0 +1,92 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentAVLMapTest {
+
+    @org.junit.jupiter.api.Test
+    void singleThreaded() {
+        ConcurrentAVLMap<String> m = new ConcurrentAVLMap<>();
+        assertTrue(m.isEmpty());
+        assertEquals(-1, m.getRank());
+        Random r = new Random(5);
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        for (int i = 0; i < 50000; i++) {
+            int k = r.nextInt(3000);
+            if (r.nextInt(3) > 0) assertEquals(expected.put(k, "v" + i), m.put(k, "v" + i));
+            else assertEquals(expected.remove(k), m.remove(k));
+        }
+        assertEquals(expected.size(), m.size());
+        for (int k = 0; k < 3000; k++) {
+            assertEquals(expected.get(k), m.get(k));
+        }
+        assertThrows(NullPointerException.class, () -> m.put(1, null));
+    }
+
+    @org.junit.jupiter.api.Test
+    void balancedAfterSequentialInserts() {
+        ConcurrentAVLMap<Integer> m = new ConcurrentAVLMap<>();
+        for (int i = 0; i < (1 << 12) - 1; i++) {
+            m.put(i, i);
+        }
+        assertEquals(11, m.getRank());
+    }
+
+    @org.junit.jupiter.api.Test
+    void concurrentUpdatesAndReads() throws InterruptedException {
+        ConcurrentAVLMap<Integer> m = new ConcurrentAVLMap<>();
+        int writers = 4;
+        int keysPerWriter = 5000;
+        // keys 0..999 are never touched by writers, so readers can always find them
+        for (int k = 0; k < 1000; k++) {
+            m.put(-1 - k, k);
+        }
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicBoolean readerFailed = new AtomicBoolean();
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            final int id = w;
+            threads.add(new Thread(() -> {
+                Random r = new Random(id);
+                for (int i = 0; i < 200000; i++) {
+                    int k = id + writers * r.nextInt(keysPerWriter); // each writer owns its own keys
+                    if (r.nextBoolean()) m.put(k, k);
+                    else m.remove(k);
+                }
+                for (int i = 0; i < keysPerWriter; i++) {
+                    int k = id + writers * i; // leave only the even slots of every writer
+                    if (i % 2 == 0) m.put(k, k);
+                    else m.remove(k);
+                }
+            }));
+        }
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 2; t++) {
+            readers.add(new Thread(() -> {
+                Random r = new Random();
+                while (!stop.get()) {
+                    int k = r.nextInt(1000);
+                    Integer v = m.get(-1 - k);
+                    if (v == null || v != k) readerFailed.set(true);
+                }
+            }));
+        }
+        readers.forEach(Thread::start);
+        threads.forEach(Thread::start);
+        for (Thread t : threads) t.join();
+        stop.set(true);
+        for (Thread t : readers) t.join();
+
+        assertFalse(readerFailed.get());
+        assertEquals(1000 + writers * keysPerWriter / 2, m.size());
+        for (int k = 0; k < writers * keysPerWriter; k++) {
+            boolean kept = (k / writers) % 2 == 0;
+            assertEquals(kept ? Integer.valueOf(k) : null, m.get(k));
+        }
+        assertTrue(m.getRank() <= 1.45 * Math.log(m.size() + 2) / Math.log(2));
+    }
+}
@@ -0,0 +1,316 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * DurableAVLTree
+ * <p>
+ * An AVLTree whose mutations survive restarts.
+ * Every insert/delete that changes the tree is appended to a write-ahead log (wal). Log records are
+ * buffered and written + fsync'ed together (group commit): every groupCommitSize mutations, or when
+ * sync() is called. A mutation is durable once the group it belongs to was synced.
+ * Every checkpointInterval mutations the whole tree is written, in key order, to a checkpoint file and the log
+ * is truncated. Recovery bulk-loads the checkpoint (AVLTree.fromSorted, O(n)) and replays the log tail;
+ * a torn record at the end of the log (crash mid-write) is detected by its CRC and dropped.
+ * <p>
+ * Not thread-safe, like AVLTree.
+ */
+public class DurableAVLTree implements Closeable {
+
+    static final String CHECKPOINT_FILE = "checkpoint";
+    static final String LOG_FILE = "wal";
+    private static final int CHECKPOINT_MAGIC = 0x41564C43; // "AVLC"
+    private static final byte INSERT = 1;
+    private static final byte DELETE = 2;
+    private static final int NULL_INFO = -1;
+
+    private final Path dir;
+    private final int groupCommitSize;
+    private final int checkpointInterval;
+
+    private AVLTree tree;
+    private FileChannel log;
+    private ByteBuffer pending = ByteBuffer.allocate(1 << 16);
+    private int pendingRecords = 0;
+    private int loggedSinceCheckpoint = 0;
+
+    /**
+     * public DurableAVLTree(Path dir, int groupCommitSize, int checkpointInterval)
+     * Opens (recovering if there is previous state) the tree stored in directory dir.
+     * groupCommitSize - mutations per fsync of the log, checkpointInterval - mutations between checkpoints.
+     * Complexity: O(n + m) where m is the length of the log tail
+     */
+    public DurableAVLTree(Path dir, int groupCommitSize, int checkpointInterval) throws IOException {
+        if (groupCommitSize < 1 || checkpointInterval < 1)
+            throw new IllegalArgumentException("groupCommitSize and checkpointInterval must be positive");
+        this.dir = dir;
+        this.groupCommitSize = groupCommitSize;
+        this.checkpointInterval = checkpointInterval;
+        Files.createDirectories(dir);
+        this.tree = readCheckpoint();
+        this.log = FileChannel.open(dir.resolve(LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        replayLog();
+    }
+
+    /**
+     * public int insert(int k, String i)
+     * AVLTree.insert, logged. Returns the number of rebalancing operations, or -1 if k already exists
+     * (in which case nothing is logged).
+     * Complexity: O(logn) amortized, plus an fsync every groupCommitSize mutations
+     */
+    public int insert(int k, String i) {
+        int result = tree.insert(k, i);
+        if (result != -1) {
+            byte[] info = i == null ? null : i.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer record = ByteBuffer.allocate(1 + 4 + 4 + (info == null ? 0 : info.length));
+            record.put(INSERT).putInt(k).putInt(info == null ? NULL_INFO : info.length);
+            if (info != null) record.put(info);
+            append(record);
+        }
+        return result;
+    }
+
+    /**
+     * public int delete(int k)
+     * AVLTree.delete, logged. Returns the number of rebalancing operations, or -1 if k wasn't found
+     * (in which case nothing is logged).
+     * Complexity: O(logn) amortized, plus an fsync every groupCommitSize mutations
+     */
+    public int delete(int k) {
+        int result = tree.delete(k);
+        if (result != -1) {
+            ByteBuffer record = ByteBuffer.allocate(1 + 4);
+            record.put(DELETE).putInt(k);
+            append(record);
+        }
+        return result;
+    }
+
+    public String search(int k) {
+        return tree.search(k);
+    }
+
+    public String min() {
+        return tree.min();
+    }
+
+    public String max() {
+        return tree.max();
+    }
+
+    public int size() {
+        return tree.size();
+    }
+
+    public boolean empty() {
+        return tree.empty();
+    }
+
+    public int[] keysToArray() {
+        return tree.keysToArray();
+    }
+
+    public String[] infoToArray() {
+        return tree.infoToArray();
+    }
+
+    /**
+     * public void sync()
+     * Writes all buffered log records and forces them to disk.
+     * Complexity: O(buffered bytes) + one fsync
+     */
+    public void sync() throws IOException {
+        if (pendingRecords == 0) return;
+        pending.flip();
+        while (pending.hasRemaining()) log.write(pending);
+        log.force(false);
+        pending.clear();
+        pendingRecords = 0;
+    }
+
+    /**
+     * public void checkpoint()
+     * Writes the tree in key order to a new checkpoint file, atomically replaces the previous one
+     * and truncates the log.
+     * Complexity: O(n)
+     */
+    public void checkpoint() throws IOException {
+        sync();
+        Path tmp = dir.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CRC32 crc = new CRC32();
+            BufferedOutputStream buffered = new BufferedOutputStream(Channels.newOutputStream(ch), 1 << 16);
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(buffered, crc));
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeInt(tree.size());
+            AVLTree.Cursor c = tree.cursor();
+            for (boolean ok = c.first(); ok; ok = c.next()) {
+                String i = c.getValue();
+                byte[] info = i == null ? null : i.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(c.getKey());
+                out.writeInt(info == null ? NULL_INFO : info.length);
+                if (info != null) out.write(info);
+            }
+            out.flush();
+            new DataOutputStream(buffered).writeLong(crc.getValue()); // the checksum itself isn't checksummed
+            buffered.flush();
+            ch.force(true);
+        }
+        Files.move(tmp, dir.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(); // the rename must be durable before the log it replaces is dropped
+        // only now the log is covered by the checkpoint
+        log.truncate(0);
+        log.force(true);
+        loggedSinceCheckpoint = 0;
+    }
+
+    /**
+     * private void syncDirectory()
+     * fsyncs the directory, making the renames and file creations in it durable.
+     * Complexity: one fsync
+     */
+    private void syncDirectory() throws IOException {
+        try (FileChannel d = FileChannel.open(dir, StandardOpenOption.READ)) {
+            d.force(true);
+        } catch (AccessDeniedException e) {
+            // directories can't be opened on Windows, which has no directory fsync
+        }
+    }
+
+    /**
+     * public void close()
+     * Syncs the log and closes it.
+     * Complexity: O(buffered bytes) + one fsync
+     */
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            log.close();
+        }
+    }
+
+    /**
+     * private void append(ByteBuffer record)
+     * Frames the record as [length][crc][payload] and buffers it, syncing when the group is full
+     * and checkpointing when the interval is reached.
+     */
+    private void append(ByteBuffer record) {
+        record.flip();
+        CRC32 crc = new CRC32();
+        crc.update(record.duplicate());
+        int frameSize = 4 + 4 + record.remaining();
+        if (pending.remaining() < frameSize) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + frameSize));
+            pending.flip();
+            bigger.put(pending);
+            pending = bigger;
+        }
+        pending.putInt(record.remaining()).putInt((int) crc.getValue()).put(record);
+        pendingRecords++;
+        loggedSinceCheckpoint++;
+        try {
+            if (loggedSinceCheckpoint >= checkpointInterval) checkpoint();
+            else if (pendingRecords >= groupCommitSize) sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * private AVLTree readCheckpoint()
+     * Bulk-loads the checkpoint file, or returns an empty tree if there is none.
+     * The counts and lengths read are bounded by the file size before anything is allocated for them,
+     * so a corrupt file fails with an IOException instead of an OutOfMemoryError.
+     * Complexity: O(n)
+     */
+    private AVLTree readCheckpoint() throws IOException {
+        Path file = dir.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) return new AVLTree();
+        long fileSize = Files.size(file);
+        try (InputStream is = Files.newInputStream(file)) {
+            CRC32 crc = new CRC32();
+            DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(is, 1 << 16), crc));
+            if (in.readInt() != CHECKPOINT_MAGIC) throw new IOException(file + " is not a checkpoint");
+            int n = in.readInt();
+            if (n < 0 || n > fileSize / 8) throw new IOException(file + " is corrupt"); // 8 bytes per item at least
+            int[] keys = new int[n];
+            String[] infos = new String[n];
+            for (int j = 0; j < n; j++) {
+                keys[j] = in.readInt();
+                int len = in.readInt();
+                if (len < NULL_INFO || len > fileSize) throw new IOException(file + " is corrupt");
+                if (len != NULL_INFO) {
+                    byte[] info = new byte[len];
+                    in.readFully(info);
+                    infos[j] = new String(info, StandardCharsets.UTF_8);
+                }
+            }
+            long expectedCrc = crc.getValue();
+            if (in.readLong() != expectedCrc) throw new IOException(file + " is corrupt");
+            return AVLTree.fromSorted(keys, infos);
+        }
+    }
+
+    /**
+     * private void replayLog()
+     * Re-applies the log records written after the checkpoint, and cuts the log at the first torn record.
+     * Complexity: O(mlogn)
+     */
+    private void replayLog() throws IOException {
+        log.position(0);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(log), 1 << 16));
+        long valid = 0;
+        try {
+            while (true) {
+                int len = in.readInt();
+                int expectedCrc = in.readInt();
+                if (len < 5 || len > log.size()) break; // garbage length, the tail is torn
+                byte[] payload = new byte[len];
+                in.readFully(payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != expectedCrc) break;
+                ByteBuffer record = ByteBuffer.wrap(payload);
+                byte op = record.get();
+                int k = record.getInt();
+                if (op == INSERT) {
+                    int infoLen = record.getInt();
+                    String info = infoLen == NULL_INFO ? null
+                            : new String(payload, record.position(), infoLen, StandardCharsets.UTF_8);
+                    tree.insert(k, info);
+                } else if (op == DELETE) {
+                    tree.delete(k);
+                } else {
+                    break;
+                }
+                valid += 8 + len;
+                loggedSinceCheckpoint++;
+            }
+        } catch (EOFException e) {
+            // end of the log, possibly in the middle of a torn record
+        }
+        log.truncate(valid);
+        log.position(valid);
+    }
+}
@@ -0,0 +1,94 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DurableAVLTreeTest {
+
+    @org.junit.jupiter.api.io.TempDir
+    Path dir;
+
+    @org.junit.jupiter.api.Test
+    void recoversFromLog() throws IOException {
+        try (DurableAVLTree t1 = new DurableAVLTree(dir, 8, 1_000_000)) {
+            for (int i = 1; i < 100; i++) {
+                t1.insert(i, "Key is " + i);
+            }
+            assertEquals(-1, t1.insert(5, "again"));
+            t1.delete(50);
+            t1.insert(200, null);
+        }
+        try (DurableAVLTree t2 = new DurableAVLTree(dir, 8, 1_000_000)) {
+            assertEquals(99, t2.size());
+            assertEquals("Key is 5", t2.search(5));
+            assertNull(t2.search(50));
+            assertEquals(200, t2.keysToArray()[98]);
+            assertNull(t2.max());
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void recoversFromCheckpointAndLogTail() throws IOException {
+        try (DurableAVLTree t1 = new DurableAVLTree(dir, 4, 64)) {
+            for (int i = 0; i < 1000; i++) {
+                t1.insert(i, "Key is " + i);
+            }
+            for (int i = 0; i < 1000; i += 3) {
+                t1.delete(i);
+            }
+        }
+        assertTrue(dir.resolve(DurableAVLTree.CHECKPOINT_FILE).toFile().exists());
+        try (DurableAVLTree t2 = new DurableAVLTree(dir, 4, 64)) {
+            assertEquals(666, t2.size());
+            assertNull(t2.search(999));
+            assertEquals("Key is 998", t2.search(998));
+            t2.checkpoint();
+            assertEquals(0, dir.resolve(DurableAVLTree.LOG_FILE).toFile().length());
+        }
+        try (DurableAVLTree t3 = new DurableAVLTree(dir, 4, 64)) {
+            assertEquals(666, t3.size());
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void dropsTornRecord() throws IOException {
+        try (DurableAVLTree t1 = new DurableAVLTree(dir, 1, 1_000_000)) {
+            t1.insert(1, "one");
+            t1.insert(2, "two");
+        }
+        // simulate a crash in the middle of writing the last record
+        Path wal = dir.resolve(DurableAVLTree.LOG_FILE);
+        try (FileChannel ch = FileChannel.open(wal, StandardOpenOption.WRITE)) {
+            ch.truncate(ch.size() - 2);
+        }
+        try (DurableAVLTree t2 = new DurableAVLTree(dir, 1, 1_000_000)) {
+            assertEquals(1, t2.size());
+            assertEquals("one", t2.search(1));
+            t2.insert(3, "three"); // appended right after the last good record
+        }
+        try (DurableAVLTree t3 = new DurableAVLTree(dir, 1, 1_000_000)) {
+            assertArrayEquals(new int[]{1, 3}, t3.keysToArray());
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void rejectsCorruptCheckpointLengths() throws IOException {
+        try (DurableAVLTree t1 = new DurableAVLTree(dir, 1, 1_000_000)) {
+            t1.insert(1, "one");
+            t1.checkpoint();
+        }
+        Path checkpoint = dir.resolve(DurableAVLTree.CHECKPOINT_FILE);
+        try (FileChannel ch = FileChannel.open(checkpoint, StandardOpenOption.WRITE)) {
+            ch.write(java.nio.ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE), 12); // the info length of item 0
+        }
+        IOException e = assertThrows(IOException.class, () -> new DurableAVLTree(dir, 1, 1_000_000));
+        assertTrue(e.getMessage().endsWith("is corrupt"));
+
+        try (FileChannel ch = FileChannel.open(checkpoint, StandardOpenOption.WRITE)) {
+            ch.write(java.nio.ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE), 4); // the item count
+        }
+        assertThrows(IOException.class, () -> new DurableAVLTree(dir, 1, 1_000_000));
+    }
+}
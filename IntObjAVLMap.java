@@ -0,0 +1,292 @@
+import java.util.NoSuchElementException;
+
+/**
+ * IntObjAVLMap
+ * <p>
+ * An AVL tree map from primitive int keys to values of any type.
+ * Same rebalance/rotate logic as AVLTree, but keys are never boxed and
+ * missing children are plain nulls instead of an external leaf, so put() allocates
+ * nothing besides the new node and get/containsKey/remove allocate nothing at all.
+ * LongObjAVLMap is the same code with another key type - change both; ObjAVLMapTest runs the same cases on both.
+ *
+ * @param <V> type of the values
+ */
+public class IntObjAVLMap<V> {
+
+    private Node<V> root;
+
+    /**
+     * static class Node
+     * A map entry. Heights of missing (null) children are -1 and sizes are 0.
+     */
+    static final class Node<V> {
+        int key;
+        V value;
+        int height;
+        int size;
+        Node<V> left;
+        Node<V> right;
+        Node<V> parent;
+
+        Node(int key, V value, Node<V> parent) {
+            this.key = key;
+            this.value = value;
+            this.parent = parent;
+            this.size = 1;
+        }
+    }
+
+    /**
+     * public boolean isEmpty()
+     * returns true if and only if the map is empty
+     * Complexity: O(1)
+     */
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * public int size()
+     * Returns the number of entries in the map.
+     * Complexity: O(1)
+     */
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * public V get(int k)
+     * returns the value mapped to k, or null if k isn't in the map
+     * Complexity: O(logn)
+     */
+    public V get(int k) {
+        Node<V> n = find(k);
+        return n == null ? null : n.value;
+    }
+
+    /**
+     * public boolean containsKey(int k)
+     * returns true if and only if k is in the map
+     * Complexity: O(logn)
+     */
+    public boolean containsKey(int k) {
+        return find(k) != null;
+    }
+
+    /**
+     * public V put(int k, V v)
+     * maps k to v. Returns the previous value of k, or null if k wasn't in the map.
+     * Complexity: O(logn)
+     */
+    public V put(int k, V v) {
+        Node<V> p = null;
+        Node<V> n = root;
+        while (n != null) {
+            if (k == n.key) {
+                V old = n.value;
+                n.value = v;
+                return old;
+            }
+            p = n;
+            n = k < n.key ? n.left : n.right;
+        }
+        Node<V> newNode = new Node<>(k, v, p);
+        if (p == null) root = newNode;
+        else if (k < p.key) p.left = newNode;
+        else p.right = newNode;
+        rebalanceUpwards(p);
+        return null;
+    }
+
+    /**
+     * public V remove(int k)
+     * removes k from the map. Returns its value, or null if k wasn't in the map.
+     * Complexity: O(logn)
+     */
+    public V remove(int k) {
+        Node<V> n = find(k);
+        if (n == null) return null;
+        V old = n.value;
+        if (n.left != null && n.right != null) {
+            // binary node - move the successor into it and remove the successor instead
+            Node<V> suc = n.right;
+            while (suc.left != null) suc = suc.left;
+            n.key = suc.key;
+            n.value = suc.value;
+            n = suc;
+        }
+        // n has at most one child now
+        Node<V> child = n.left != null ? n.left : n.right;
+        Node<V> p = n.parent;
+        replaceChild(p, n, child);
+        n.parent = n.left = n.right = null; // help the GC
+        n.value = null;
+        rebalanceUpwards(p);
+        return old;
+    }
+
+    /**
+     * public int minKey()
+     * Returns the smallest key. Throws NoSuchElementException if the map is empty, like TreeMap.firstKey.
+     * Complexity: O(logn)
+     */
+    public int minKey() {
+        Node<V> n = root;
+        if (n == null) throw new NoSuchElementException();
+        while (n.left != null) n = n.left;
+        return n.key;
+    }
+
+    /**
+     * public int maxKey()
+     * Returns the largest key. Throws NoSuchElementException if the map is empty, like TreeMap.lastKey.
+     * Complexity: O(logn)
+     */
+    public int maxKey() {
+        Node<V> n = root;
+        if (n == null) throw new NoSuchElementException();
+        while (n.right != null) n = n.right;
+        return n.key;
+    }
+
+    /**
+     * public int[] keysToArray()
+     * Returns a sorted array of all keys in the map.
+     * Complexity: O(n)
+     */
+    public int[] keysToArray() {
+        int[] arr = new int[size()];
+        int i = 0;
+        for (Node<V> n = first(); n != null; n = successor(n)) arr[i++] = n.key;
+        return arr;
+    }
+
+    /**
+     * public int getRank()
+     * Returns the height of the tree, -1 for an empty map.
+     * Complexity: O(1)
+     */
+    public int getRank() {
+        return height(root);
+    }
+
+    /**
+     * private Node<V> find(int k)
+     * Iterative search for the node with key k, null if there is none.
+     * Complexity: O(logn)
+     */
+    private Node<V> find(int k) {
+        Node<V> n = root;
+        while (n != null) {
+            if (k == n.key) return n;
+            n = k < n.key ? n.left : n.right;
+        }
+        return null;
+    }
+
+    private Node<V> first() {
+        Node<V> n = root;
+        if (n == null) return null;
+        while (n.left != null) n = n.left;
+        return n;
+    }
+
+    private static <V> Node<V> successor(Node<V> x) {
+        if (x.right != null) {
+            x = x.right;
+            while (x.left != null) x = x.left;
+            return x;
+        }
+        Node<V> y = x.parent;
+        while (y != null && x == y.right) {
+            x = y;
+            y = y.parent;
+        }
+        return y;
+    }
+
+    private static int height(Node<?> n) {
+        return n == null ? -1 : n.height;
+    }
+
+    private static int size(Node<?> n) {
+        return n == null ? 0 : n.size;
+    }
+
+    private static int getBalance(Node<?> n) {
+        return n == null ? 0 : height(n.left) - height(n.right);
+    }
+
+    private static void update(Node<?> n) {
+        n.height = Math.max(height(n.left), height(n.right)) + 1;
+        n.size = size(n.left) + size(n.right) + 1;
+    }
+
+    /**
+     * private void replaceChild(Node<V> p, Node<V> oldChild, Node<V> newChild)
+     * Hangs newChild where oldChild was under p (or as the root if p is null).
+     * Complexity: O(1)
+     */
+    private void replaceChild(Node<V> p, Node<V> oldChild, Node<V> newChild) {
+        if (newChild != null) newChild.parent = p;
+        if (p == null) root = newChild;
+        else if (p.left == oldChild) p.left = newChild;
+        else p.right = newChild;
+    }
+
+    /**
+     * private void rebalanceUpwards(Node<V> n)
+     * Updates heights and sizes from n up to the root, rotating wherever the balance is off by 2.
+     * Complexity: O(logn)
+     */
+    private void rebalanceUpwards(Node<V> n) {
+        while (n != null) {
+            update(n);
+            n = rebalance(n).parent;
+        }
+    }
+
+    /**
+     * private Node<V> rebalance(Node<V> n)
+     * Rebalancing a single node (LL, LR, RR and RL cases, as in AVLTree.rebalance).
+     * Returns the root of the subtree after rotations.
+     * Complexity: O(1)
+     */
+    private Node<V> rebalance(Node<V> n) {
+        int balance = getBalance(n);
+        if (balance > 1) {
+            if (getBalance(n.left) < 0) rotateLeft(n.left);
+            return rotateRight(n);
+        } else if (balance < -1) {
+            if (getBalance(n.right) > 0) rotateRight(n.right);
+            return rotateLeft(n);
+        }
+        return n;
+    }
+
+    private Node<V> rotateLeft(Node<V> oldRoot) {
+        Node<V> newRoot = oldRoot.right;
+        Node<V> z = newRoot.left;
+        oldRoot.right = z;
+        if (z != null) z.parent = oldRoot;
+        replaceChild(oldRoot.parent, oldRoot, newRoot);
+        newRoot.left = oldRoot;
+        oldRoot.parent = newRoot;
+        update(oldRoot); // have to update 'lower' node first
+        update(newRoot);
+        return newRoot;
+    }
+
+    private Node<V> rotateRight(Node<V> oldRoot) {
+        Node<V> newRoot = oldRoot.left;
+        Node<V> z = newRoot.right;
+        oldRoot.left = z;
+        if (z != null) z.parent = oldRoot;
+        replaceChild(oldRoot.parent, oldRoot, newRoot);
+        newRoot.right = oldRoot;
+        oldRoot.parent = newRoot;
+        update(oldRoot);
+        update(newRoot);
+        return newRoot;
+    }
+}
@@ -0,0 +1,50 @@
+import java.util.Arrays;
+
+class IntObjAVLMapTest extends ObjAVLMapTest {
+
+    @Override
+    <V> KeyedMap<V> newMap() {
+        IntObjAVLMap<V> m = new IntObjAVLMap<>();
+        return new KeyedMap<V>() {
+            public boolean isEmpty() {
+                return m.isEmpty();
+            }
+
+            public int size() {
+                return m.size();
+            }
+
+            public V get(long k) {
+                return m.get(Math.toIntExact(k));
+            }
+
+            public boolean containsKey(long k) {
+                return m.containsKey(Math.toIntExact(k));
+            }
+
+            public V put(long k, V v) {
+                return m.put(Math.toIntExact(k), v);
+            }
+
+            public V remove(long k) {
+                return m.remove(Math.toIntExact(k));
+            }
+
+            public long minKey() {
+                return m.minKey();
+            }
+
+            public long maxKey() {
+                return m.maxKey();
+            }
+
+            public long[] keysToArray() {
+                return Arrays.stream(m.keysToArray()).asLongStream().toArray();
+            }
+
+            public int getRank() {
+                return m.getRank();
+            }
+        };
+    }
+}
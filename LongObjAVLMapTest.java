@@ -0,0 +1,97 @@
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongObjAVLMapTest extends ObjAVLMapTest {
+
+    @Override
+    <V> KeyedMap<V> newMap() {
+        LongObjAVLMap<V> m = new LongObjAVLMap<>();
+        return new KeyedMap<V>() {
+            public boolean isEmpty() {
+                return m.isEmpty();
+            }
+
+            public int size() {
+                return m.size();
+            }
+
+            public V get(long k) {
+                return m.get(k);
+            }
+
+            public boolean containsKey(long k) {
+                return m.containsKey(k);
+            }
+
+            public V put(long k, V v) {
+                return m.put(k, v);
+            }
+
+            public V remove(long k) {
+                return m.remove(k);
+            }
+
+            public long minKey() {
+                return m.minKey();
+            }
+
+            public long maxKey() {
+                return m.maxKey();
+            }
+
+            public long[] keysToArray() {
+                return m.keysToArray();
+            }
+
+            public int getRank() {
+                return m.getRank();
+            }
+        };
+    }
+
+    @org.junit.jupiter.api.Test
+    void keysBeyondTheIntRange() {
+        LongObjAVLMap<String> m = new LongObjAVLMap<>();
+        long big = 1L << 40;
+        for (long k = big; k < big + 100; k++) {
+            m.put(k, Long.toString(k));
+        }
+        assertEquals(100, m.size());
+        assertEquals(Long.toString(big + 42), m.get(big + 42));
+        assertFalse(m.containsKey(42));
+        assertFalse(m.containsKey((int) (big + 42))); // same low 32 bits
+        assertEquals(big, m.minKey());
+        assertEquals(big + 99, m.maxKey());
+        assertEquals(Long.toString(big), m.remove(big));
+        assertEquals(big + 1, m.keysToArray()[0]);
+
+        m.put(Long.MIN_VALUE, "min");
+        m.put(Long.MAX_VALUE, "max");
+        m.put(-big, "negative");
+        assertEquals(Long.MIN_VALUE, m.minKey());
+        assertEquals(Long.MAX_VALUE, m.maxKey());
+        assertEquals("negative", m.get(-big));
+        long[] keys = m.keysToArray();
+        assertEquals(-big, keys[1]);
+        assertEquals(big + 1, keys[2]);
+    }
+
+    @org.junit.jupiter.api.Test
+    void wideKeysAgainstTreeMap() {
+        Random r = new Random(11);
+        LongObjAVLMap<Integer> m = new LongObjAVLMap<>();
+        TreeMap<Long, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < 20000; i++) {
+            long k = (r.nextInt(1000) - 500L) << 33; // spread over the whole long range
+            if (r.nextBoolean()) assertEquals(expected.put(k, i), m.put(k, i));
+            else assertEquals(expected.remove(k), m.remove(k));
+            assertEquals(expected.size(), m.size());
+        }
+        assertArrayEquals(expected.keySet().stream().mapToLong(Long::longValue).toArray(), m.keysToArray());
+        assertEquals(expected.firstKey(), m.minKey());
+        assertEquals(expected.lastKey(), m.maxKey());
+        assertTrue(m.getRank() <= 1.45 * Math.log(m.size() + 2) / Math.log(2));
+    }
+}
@@ -0,0 +1,114 @@
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ObjAVLMapTest
+ * <p>
+ * The cases shared by IntObjAVLMap and LongObjAVLMap, which are the same code with a different key type.
+ * Each map's test extends this class, so both run every case here and can't drift apart.
+ */
+abstract class ObjAVLMapTest {
+
+    /**
+     * interface KeyedMap
+     * The operations of both maps, with long keys. Tests only pass IntObjAVLMap keys in the int range.
+     */
+    interface KeyedMap<V> {
+        boolean isEmpty();
+
+        int size();
+
+        V get(long k);
+
+        boolean containsKey(long k);
+
+        V put(long k, V v);
+
+        V remove(long k);
+
+        long minKey();
+
+        long maxKey();
+
+        long[] keysToArray();
+
+        int getRank();
+    }
+
+    abstract <V> KeyedMap<V> newMap();
+
+    @org.junit.jupiter.api.Test
+    void putGetRemove() {
+        KeyedMap<byte[]> m = newMap();
+        assertTrue(m.isEmpty());
+        assertEquals(-1, m.getRank());
+        byte[] payload = {1, 2, 3};
+        assertNull(m.put(7, payload));
+        assertSame(payload, m.get(7));
+        assertTrue(m.containsKey(7));
+        assertFalse(m.containsKey(8));
+        assertSame(payload, m.put(7, new byte[0]));
+        assertEquals(1, m.size());
+        assertEquals(0, m.remove(7).length);
+        assertNull(m.remove(7));
+        assertNull(m.get(7));
+        assertTrue(m.isEmpty());
+    }
+
+    @org.junit.jupiter.api.Test
+    void minAndMaxKeys() {
+        KeyedMap<String> m = newMap();
+        assertThrows(NoSuchElementException.class, m::minKey);
+        assertThrows(NoSuchElementException.class, m::maxKey);
+        m.put(-1, "minus one");
+        assertEquals(-1, m.minKey()); // a real key, not an empty marker
+        assertEquals(-1, m.maxKey());
+        m.put(Integer.MIN_VALUE, "min");
+        m.put(Integer.MAX_VALUE, "max");
+        assertEquals(Integer.MIN_VALUE, m.minKey());
+        assertEquals(Integer.MAX_VALUE, m.maxKey());
+        m.remove(Integer.MIN_VALUE);
+        m.remove(Integer.MAX_VALUE);
+        m.remove(-1);
+        assertThrows(NoSuchElementException.class, m::minKey);
+    }
+
+    @org.junit.jupiter.api.Test
+    void balanced() {
+        KeyedMap<String> m = newMap();
+        for (int i = 0; i < 1023; i++) {
+            m.put(i, "v" + i);
+        }
+        assertEquals(9, m.getRank()); // sequential inserts still give a perfectly balanced tree
+        assertEquals(0, m.minKey());
+        assertEquals(1022, m.maxKey());
+        for (int i = 0; i < 1023; i += 2) {
+            m.remove(i);
+        }
+        assertEquals(511, m.size());
+        assertEquals(1, m.minKey());
+        assertEquals(1021, m.maxKey());
+        assertTrue(m.getRank() <= 1.45 * Math.log(m.size() + 2) / Math.log(2));
+    }
+
+    @org.junit.jupiter.api.Test
+    void randomAgainstTreeMap() {
+        Random r = new Random(7);
+        KeyedMap<Integer> m = newMap();
+        TreeMap<Long, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < 20000; i++) {
+            long k = r.nextInt(1000) - 500;
+            if (r.nextBoolean()) assertEquals(expected.put(k, i), m.put(k, i));
+            else assertEquals(expected.remove(k), m.remove(k));
+            assertEquals(expected.size(), m.size());
+            if (i % 100 == 0) assertEquals(expected.get(k + 1), m.get(k + 1));
+        }
+        assertArrayEquals(expected.keySet().stream().mapToLong(Long::longValue).toArray(), m.keysToArray());
+        assertEquals(expected.firstKey(), m.minKey());
+        assertEquals(expected.lastKey(), m.maxKey());
+        assertTrue(m.getRank() <= 1.45 * Math.log(m.size() + 2) / Math.log(2));
+    }
+}
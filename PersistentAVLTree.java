@@ -0,0 +1,339 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * PersistentAVLTree
+ * <p>
+ * An immutable AVL Tree with distinct integer keys and String info.
+ * insert, delete, join and split never modify a tree - they copy the path they change and return a new tree
+ * which shares every untouched subtree with the old one. Any tree value is therefore a consistent snapshot,
+ * snapshot() is O(1), and readers can iterate an old version while a writer keeps producing new ones.
+ * <p>
+ * There are no parent pointers (a node may belong to many versions), so iteration keeps an explicit path stack.
+ */
+public final class PersistentAVLTree implements Iterable<PersistentAVLTree.Node> {
+
+    private static final PersistentAVLTree EMPTY = new PersistentAVLTree(null);
+
+    private final Node root;
+
+    /**
+     * public static final class Node
+     * An immutable tree node. Missing children are null, with height -1 and size 0.
+     */
+    public static final class Node {
+        private final int key;
+        private final String info;
+        private final Node left;
+        private final Node right;
+        private final int height;
+        private final int size;
+
+        private Node(Node left, int key, String info, Node right) {
+            this.key = key;
+            this.info = info;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+        }
+
+        public int getKey() {
+            return key;
+        }
+
+        public String getValue() {
+            return info;
+        }
+
+        public String toString() {
+            return this.key + ": " + this.info;
+        }
+    }
+
+    private PersistentAVLTree(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * public static PersistentAVLTree empty()
+     * Returns the empty tree.
+     * Complexity: O(1)
+     */
+    public static PersistentAVLTree empty() {
+        return EMPTY;
+    }
+
+    private static PersistentAVLTree of(Node root) {
+        return root == null ? EMPTY : new PersistentAVLTree(root);
+    }
+
+    /**
+     * public boolean isEmpty()
+     * returns true if and only if the tree is empty
+     * Complexity: O(1)
+     */
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * public int size()
+     * Returns the number of nodes in the tree.
+     * Complexity: O(1)
+     */
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * public int getRank()
+     * Returns the rank (height) of the tree, -1 for an empty tree.
+     * Complexity: O(1)
+     */
+    public int getRank() {
+        return height(root);
+    }
+
+    /**
+     * public PersistentAVLTree snapshot()
+     * Returns a point-in-time version of the tree. As trees never change, that is the tree itself.
+     * Complexity: O(1)
+     */
+    public PersistentAVLTree snapshot() {
+        return this;
+    }
+
+    /**
+     * public String search(int k)
+     * returns the info of an item with key k if it exists in the tree
+     * otherwise, returns null
+     * Complexity: O(logn)
+     */
+    public String search(int k) {
+        Node n = root;
+        while (n != null) {
+            if (k == n.key) return n.info;
+            n = k < n.key ? n.left : n.right;
+        }
+        return null;
+    }
+
+    /**
+     * public String min()
+     * Returns the info of the item with the smallest key in the tree, or null if the tree is empty
+     * Complexity: O(logn)
+     */
+    public String min() {
+        Node n = root;
+        if (n == null) return null;
+        while (n.left != null) n = n.left;
+        return n.info;
+    }
+
+    /**
+     * public String max()
+     * Returns the info of the item with the largest key in the tree, or null if the tree is empty
+     * Complexity: O(logn)
+     */
+    public String max() {
+        Node n = root;
+        if (n == null) return null;
+        while (n.right != null) n = n.right;
+        return n.info;
+    }
+
+    /**
+     * public PersistentAVLTree insert(int k, String i)
+     * Returns a tree with the item k -> i added, or this tree if k is already in it.
+     * Complexity: O(logn) time and new nodes
+     */
+    public PersistentAVLTree insert(int k, String i) {
+        Node n = insert(root, k, i);
+        return n == root ? this : of(n);
+    }
+
+    private static Node insert(Node n, int k, String i) {
+        if (n == null) return new Node(null, k, i, null);
+        if (k == n.key) return n;
+        if (k < n.key) {
+            Node l = insert(n.left, k, i);
+            return l == n.left ? n : balance(l, n.key, n.info, n.right);
+        }
+        Node r = insert(n.right, k, i);
+        return r == n.right ? n : balance(n.left, n.key, n.info, r);
+    }
+
+    /**
+     * public PersistentAVLTree delete(int k)
+     * Returns a tree without key k, or this tree if k isn't in it.
+     * Complexity: O(logn) time and new nodes
+     */
+    public PersistentAVLTree delete(int k) {
+        Node n = delete(root, k);
+        return n == root ? this : of(n);
+    }
+
+    private static Node delete(Node n, int k) {
+        if (n == null) return null;
+        if (k < n.key) {
+            Node l = delete(n.left, k);
+            return l == n.left ? n : balance(l, n.key, n.info, n.right);
+        }
+        if (k > n.key) {
+            Node r = delete(n.right, k);
+            return r == n.right ? n : balance(n.left, n.key, n.info, r);
+        }
+        // k == n.key - replace n with its successor
+        if (n.left == null) return n.right;
+        if (n.right == null) return n.left;
+        Node suc = n.right;
+        while (suc.left != null) suc = suc.left;
+        return balance(n.left, suc.key, suc.info, deleteMin(n.right));
+    }
+
+    private static Node deleteMin(Node n) {
+        if (n.left == null) return n.right;
+        return balance(deleteMin(n.left), n.key, n.info, n.right);
+    }
+
+    /**
+     * public PersistentAVLTree join(int k, String i, PersistentAVLTree t)
+     * Returns the tree holding the keys of this tree, k -> i and the keys of t.
+     * precondition: keys() < k < keys(t) or keys(t) < k < keys()
+     * Complexity: O(|rank - t.rank| + 1)
+     */
+    public PersistentAVLTree join(int k, String i, PersistentAVLTree t) {
+        boolean thisIsSmaller = (root != null && root.key < k) || (t.root != null && t.root.key > k);
+        return thisIsSmaller ? of(join(root, k, i, t.root)) : of(join(t.root, k, i, root));
+    }
+
+    /**
+     * private static Node join(Node l, int k, String i, Node r)
+     * Joins l < k < r. Descends the spine of the higher tree to a subtree of about the other's height,
+     * hangs the new node there and rebalances on the way back up.
+     * Complexity: O(|height(l) - height(r)| + 1)
+     */
+    private static Node join(Node l, int k, String i, Node r) {
+        int hl = height(l);
+        int hr = height(r);
+        if (hl > hr + 1) return balance(l.left, l.key, l.info, join(l.right, k, i, r));
+        if (hr > hl + 1) return balance(join(l, k, i, r.left), r.key, r.info, r.right);
+        return new Node(l, k, i, r);
+    }
+
+    /**
+     * public PersistentAVLTree[] split(int x)
+     * Returns [t1, t2] with keys(t1) < x < keys(t2). x itself (if it is in the tree) is in neither.
+     * This tree is unchanged.
+     * Complexity: O(logn)
+     */
+    public PersistentAVLTree[] split(int x) {
+        Node[] parts = new Node[2];
+        split(root, x, parts);
+        return new PersistentAVLTree[]{of(parts[0]), of(parts[1])};
+    }
+
+    private static void split(Node n, int x, Node[] parts) {
+        if (n == null) {
+            parts[0] = parts[1] = null;
+        } else if (x < n.key) {
+            split(n.left, x, parts);
+            parts[1] = join(parts[1], n.key, n.info, n.right);
+        } else if (x > n.key) {
+            split(n.right, x, parts);
+            parts[0] = join(n.left, n.key, n.info, parts[0]);
+        } else {
+            parts[0] = n.left;
+            parts[1] = n.right;
+        }
+    }
+
+    /**
+     * public int[] keysToArray()
+     * Returns a sorted array which contains all keys in the tree.
+     * Complexity: O(n)
+     */
+    public int[] keysToArray() {
+        int[] arr = new int[size()];
+        int i = 0;
+        for (Node n : this) arr[i++] = n.key;
+        return arr;
+    }
+
+    /**
+     * public String[] infoToArray()
+     * Returns an array which contains all info in the tree, sorted by their respective keys.
+     * Complexity: O(n)
+     */
+    public String[] infoToArray() {
+        String[] arr = new String[size()];
+        int i = 0;
+        for (Node n : this) arr[i++] = n.info;
+        return arr;
+    }
+
+    /**
+     * public Iterator<Node> iterator()
+     * In-order iterator over this version of the tree, using a path stack of rank + 1 nodes.
+     * Complexity: O(1) amortized per step
+     */
+    public Iterator<Node> iterator() {
+        return new Iterator<Node>() {
+            private final Node[] stack = new Node[height(root) + 1];
+            private int top = pushLeft(root, 0);
+
+            private int pushLeft(Node n, int top) {
+                for (; n != null; n = n.left) stack[top++] = n;
+                return top;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return top > 0;
+            }
+
+            @Override
+            public Node next() {
+                if (top == 0) throw new NoSuchElementException();
+                Node n = stack[--top];
+                top = pushLeft(n.right, top);
+                return n;
+            }
+        };
+    }
+
+    private static int height(Node n) {
+        return n == null ? -1 : n.height;
+    }
+
+    private static int size(Node n) {
+        return n == null ? 0 : n.size;
+    }
+
+    /**
+     * private static Node balance(Node l, int k, String i, Node r)
+     * Creates the node (l, k, r) where the heights of l and r may differ by up to 2,
+     * rotating (LL/LR/RR/RL cases, as in AVLTree.rebalance) so the result is balanced.
+     * Complexity: O(1)
+     */
+    private static Node balance(Node l, int k, String i, Node r) {
+        int hl = height(l);
+        int hr = height(r);
+        if (hl > hr + 1) {
+            if (height(l.left) >= height(l.right)) { // LL - single right rotation
+                return new Node(l.left, l.key, l.info, new Node(l.right, k, i, r));
+            }
+            Node lr = l.right; // LR - double rotation
+            return new Node(new Node(l.left, l.key, l.info, lr.left), lr.key, lr.info, new Node(lr.right, k, i, r));
+        }
+        if (hr > hl + 1) {
+            if (height(r.right) >= height(r.left)) { // RR - single left rotation
+                return new Node(new Node(l, k, i, r.left), r.key, r.info, r.right);
+            }
+            Node rl = r.left; // RL - double rotation
+            return new Node(new Node(l, k, i, rl.left), rl.key, rl.info, new Node(rl.right, r.key, r.info, r.right));
+        }
+        return new Node(l, k, i, r);
+    }
+}
@@ -0,0 +1,87 @@
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentAVLTreeTest {
+
+    private static int[] keys(TreeMap<Integer, String> m) {
+        return m.keySet().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static boolean balanced(PersistentAVLTree t) {
+        return t.getRank() <= 1.45 * Math.log(t.size() + 2) / Math.log(2);
+    }
+
+    @org.junit.jupiter.api.Test
+    void init() {
+        PersistentAVLTree t1 = PersistentAVLTree.empty();
+        assertTrue(t1.isEmpty());
+        assertEquals(-1, t1.getRank());
+        assertNull(t1.min());
+        assertNull(t1.search(1));
+        assertFalse(t1.iterator().hasNext());
+    }
+
+    @org.junit.jupiter.api.Test
+    void versionsAreIndependent() {
+        PersistentAVLTree v0 = PersistentAVLTree.empty();
+        PersistentAVLTree v1 = v0.insert(1, "1").insert(2, "2").insert(3, "3");
+        PersistentAVLTree snapshot = v1.snapshot();
+        PersistentAVLTree v2 = v1.delete(2).insert(4, "4");
+        assertArrayEquals(new int[]{1, 2, 3}, snapshot.keysToArray());
+        assertArrayEquals(new int[]{1, 3, 4}, v2.keysToArray());
+        assertTrue(v0.isEmpty());
+        assertSame(v1, v1.insert(2, "other"));
+        assertSame(v1, v1.delete(7));
+        assertEquals("2", v1.search(2));
+    }
+
+    @org.junit.jupiter.api.Test
+    void randomAgainstTreeMap() {
+        Random r = new Random(11);
+        PersistentAVLTree t = PersistentAVLTree.empty();
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        for (int i = 0; i < 20000; i++) {
+            int k = r.nextInt(2000);
+            if (r.nextInt(3) > 0) {
+                t = t.insert(k, "v" + k);
+                expected.putIfAbsent(k, "v" + k);
+            } else {
+                t = t.delete(k);
+                expected.remove(k);
+            }
+        }
+        assertEquals(expected.size(), t.size());
+        assertArrayEquals(keys(expected), t.keysToArray());
+        assertArrayEquals(expected.values().toArray(new String[0]), t.infoToArray());
+        assertEquals(expected.firstEntry().getValue(), t.min());
+        assertEquals(expected.lastEntry().getValue(), t.max());
+        assertTrue(balanced(t));
+    }
+
+    @org.junit.jupiter.api.Test
+    void splitAndJoin() {
+        PersistentAVLTree t = PersistentAVLTree.empty();
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        Random r = new Random(2);
+        for (int i = 0; i < 3000; i++) {
+            int k = r.nextInt(10000);
+            t = t.insert(k, "v" + k);
+            expected.putIfAbsent(k, "v" + k);
+        }
+        for (int x : new int[]{-5, 0, 17, 5000, 9999, 20000, expected.firstKey(), expected.lastKey()}) {
+            PersistentAVLTree[] parts = t.split(x);
+            assertArrayEquals(keys(new TreeMap<>(expected.headMap(x, false))), parts[0].keysToArray());
+            assertArrayEquals(keys(new TreeMap<>(expected.tailMap(x, false))), parts[1].keysToArray());
+            assertTrue(balanced(parts[0]) && balanced(parts[1]));
+
+            PersistentAVLTree joined = parts[0].join(x, "x", parts[1]);
+            assertEquals(x, joined.keysToArray()[parts[0].size()]);
+            assertEquals(parts[0].size() + parts[1].size() + 1, joined.size());
+            assertTrue(balanced(joined));
+            assertEquals(joined.size(), parts[1].join(x, "x", parts[0]).size()); // either order works
+        }
+        assertEquals(expected.size(), t.size()); // split and join never change t
+    }
+}
@@ -0,0 +1,378 @@
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * ShardedAVLMap
+ * <p>
+ * An int-keyed map partitioned by key range into shards, each an AVLTree behind its own lock, so writers to
+ * different shards run in parallel. The layout (the shards and their lower bounds) is an immutable array published
+ * through a volatile field: an operation finds its shard by binary search over the bounds, locks it, and retries
+ * if the shard was retired by a concurrent rebalancing meanwhile - there is no global lock on the hot path.
+ * <p>
+ * Shards are rebalanced online with AVLTree's split and join: a shard which grew too big is split at its median,
+ * and neighbours which got too small are joined. Only the shards involved are locked while that happens.
+ * <p>
+ * Operations spanning shards (size, rank, select) lock one shard at a time, so like the iterators of
+ * java.util.concurrent they are weakly consistent: exact when there are no concurrent writes. They hold the read
+ * side of a layout lock, which only rebalancing takes for writing - single-key operations never touch it.
+ */
+public class ShardedAVLMap {
+
+    private static final int SCAN_BATCH = 256; // items copied per shard lock acquisition by rangeScan
+
+    /**
+     * private static final class Shard
+     * The keys in [lo, next shard's lo) - lo is fixed, the shard is retired instead of being resized.
+     */
+    private static final class Shard {
+        final int lo;
+        final AVLTree tree;
+        final ReentrantLock lock = new ReentrantLock();
+        boolean retired; // guarded by lock
+
+        Shard(int lo, AVLTree tree) {
+            this.lo = lo;
+            this.tree = tree;
+        }
+    }
+
+    private volatile Shard[] shards; // sorted by lo, shards[0].lo == Integer.MIN_VALUE
+    private final ReentrantReadWriteLock layoutLock = new ReentrantReadWriteLock(); // see the class comment
+
+    /**
+     * public ShardedAVLMap(int shardCount)
+     * Creates an empty map whose key space is split into shardCount equal ranges.
+     * Complexity: O(shardCount)
+     */
+    public ShardedAVLMap(int shardCount) {
+        if (shardCount < 1) throw new IllegalArgumentException("shardCount must be positive");
+        Shard[] initial = new Shard[shardCount];
+        long width = ((long) Integer.MAX_VALUE - Integer.MIN_VALUE + 1) / shardCount;
+        for (int s = 0; s < shardCount; s++) {
+            initial[s] = new Shard((int) (Integer.MIN_VALUE + s * width), new AVLTree());
+        }
+        this.shards = initial;
+    }
+
+    /**
+     * public String search(int k)
+     * returns the info of an item with key k if it exists in the map, otherwise null
+     * Complexity: O(log(shards) + logn)
+     */
+    public String search(int k) {
+        while (true) {
+            Shard s = shardFor(shards, k);
+            s.lock.lock();
+            try {
+                if (!s.retired) return s.tree.search(k);
+            } finally {
+                s.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * public int insert(int k, String i)
+     * AVLTree.insert on the shard of k: returns the number of rebalancing operations, or -1 if k already exists.
+     * Complexity: O(log(shards) + logn)
+     */
+    public int insert(int k, String i) {
+        while (true) {
+            Shard s = shardFor(shards, k);
+            s.lock.lock();
+            try {
+                if (!s.retired) return s.tree.insert(k, i);
+            } finally {
+                s.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * public int delete(int k)
+     * AVLTree.delete on the shard of k: returns the number of rebalancing operations, or -1 if k wasn't found.
+     * Complexity: O(log(shards) + logn)
+     */
+    public int delete(int k) {
+        while (true) {
+            Shard s = shardFor(shards, k);
+            s.lock.lock();
+            try {
+                if (!s.retired) return s.tree.delete(k);
+            } finally {
+                s.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * public int size()
+     * Returns the number of items, summing the shard sizes.
+     * Complexity: O(shards)
+     */
+    public int size() {
+        int size = 0;
+        for (int shardSize : shardSizes()) size += shardSize;
+        return size;
+    }
+
+    /**
+     * public int rank(int k)
+     * Returns the number of keys smaller than k: the sizes of the shards before k's, plus k's rank in its shard.
+     * Complexity: O(shards + logn)
+     */
+    public int rank(int k) {
+        layoutLock.readLock().lock();
+        try {
+            int rank = 0;
+            for (Shard s : shards) {
+                if (s.lo > k) break;
+                s.lock.lock();
+                try {
+                    rank += s.tree.rank(k); // the whole shard, unless k is inside it
+                } finally {
+                    s.lock.unlock();
+                }
+            }
+            return rank;
+        } finally {
+            layoutLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * public int select(int i)
+     * Returns the i-th smallest key (0-based), or -1 if i is out of range: skips whole shards by their sizes
+     * and selects inside the shard holding rank i.
+     * Complexity: O(shards + logn)
+     */
+    public int select(int i) {
+        if (i < 0) return -1;
+        layoutLock.readLock().lock();
+        try {
+            for (Shard s : shards) {
+                s.lock.lock();
+                try {
+                    int size = s.tree.size();
+                    if (i < size) return s.tree.select(i);
+                    i -= size;
+                } finally {
+                    s.lock.unlock();
+                }
+            }
+            return -1;
+        } finally {
+            layoutLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * public Iterable<Map.Entry<Integer, String>> rangeScan(int lo, int hi)
+     * Returns the items with lo <= key <= hi in key order. The shards are disjoint and sorted, so their cursors
+     * merge by concatenation: an iterator copies up to SCAN_BATCH items of the shard holding its next key under
+     * the shard's lock, then releases it, and finds the shard again by key - so it makes progress while shards are
+     * written to or rebalanced, and never holds a lock between calls.
+     * Complexity: O(logn + k) for a full iteration of k items, plus O(log(shards)) per batch
+     */
+    public Iterable<Map.Entry<Integer, String>> rangeScan(int lo, int hi) {
+        return () -> new Iterator<Map.Entry<Integer, String>>() {
+            private final List<Map.Entry<Integer, String>> batch = new ArrayList<>(SCAN_BATCH);
+            private int position = 0;
+            private long nextKey = lo; // the smallest key not scanned yet, > hi once done
+
+            @Override
+            public boolean hasNext() {
+                while (position == batch.size() && nextKey <= hi) fill();
+                return position < batch.size();
+            }
+
+            @Override
+            public Map.Entry<Integer, String> next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return batch.get(position++);
+            }
+
+            private void fill() {
+                batch.clear();
+                position = 0;
+                while (true) {
+                    Shard[] layout = shards;
+                    int index = indexFor(layout, (int) nextKey);
+                    Shard s = layout[index];
+                    long shardEnd = index + 1 < layout.length ? layout[index + 1].lo : (long) Integer.MAX_VALUE + 1;
+                    s.lock.lock();
+                    try {
+                        if (s.retired) continue;
+                        AVLTree.IAVLNode n = s.tree.ceiling((int) nextKey);
+                        while (n != null && n.getKey() <= hi && batch.size() < SCAN_BATCH) {
+                            batch.add(new AbstractMap.SimpleImmutableEntry<>(n.getKey(), n.getValue()));
+                            n = s.tree.successor(n);
+                        }
+                        if (n != null && n.getKey() <= hi) nextKey = n.getKey(); // the batch is full
+                        else nextKey = Math.min(shardEnd, (long) hi + 1); // this shard is done
+                        return;
+                    } finally {
+                        s.lock.unlock();
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * public int shardCount()
+     * Returns the current number of shards.
+     * Complexity: O(1)
+     */
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * public int[] shardSizes()
+     * Returns the sizes of the shards, in key order.
+     * Complexity: O(shards)
+     */
+    public int[] shardSizes() {
+        layoutLock.readLock().lock();
+        try {
+            Shard[] layout = shards;
+            int[] sizes = new int[layout.length];
+            for (int s = 0; s < layout.length; s++) sizes[s] = shardSize(s);
+            return sizes;
+        } finally {
+            layoutLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * public int rebalance(int maxShardSize)
+     * Splits every shard bigger than maxShardSize at its median key, then joins neighbouring shards whose
+     * total size is at most maxShardSize / 4. Returns the number of splits and joins made.
+     * Single-key operations and scans run alongside - each split or join only locks the shards it replaces.
+     * Complexity: O(shards * logn)
+     */
+    public int rebalance(int maxShardSize) {
+        if (maxShardSize < 2) throw new IllegalArgumentException("maxShardSize must be at least 2");
+        layoutLock.writeLock().lock();
+        try {
+            int changes = 0;
+            for (int s = 0; s < shards.length; s++) {
+                while (shardSize(s) > maxShardSize) {
+                    splitShard(s);
+                    changes++;
+                }
+            }
+            for (int s = 0; s + 1 < shards.length; ) {
+                if (shardSize(s) + shardSize(s + 1) <= maxShardSize / 4) {
+                    joinShards(s);
+                    changes++;
+                } else {
+                    s++;
+                }
+            }
+            return changes;
+        } finally {
+            layoutLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * private void splitShard(int index)
+     * Replaces shard index by two shards, split at its median key with AVLTree.split (the median itself, which
+     * split leaves out, starts the right shard). The shard must have at least 2 items.
+     * Complexity: O(logn)
+     */
+    private void splitShard(int index) {
+        Shard old = shards[index];
+        old.lock.lock();
+        try {
+            int median = old.tree.select(old.tree.size() / 2);
+            String info = old.tree.search(median);
+            AVLTree[] parts = old.tree.split(median);
+            parts[1].insert(median, info);
+            replace(index, 1, new Shard(old.lo, parts[0]), new Shard(median, parts[1]));
+            old.retired = true;
+        } finally {
+            old.lock.unlock();
+        }
+    }
+
+    /**
+     * private void joinShards(int index)
+     * Replaces shards index and index + 1 by one shard, with AVLTree.join: the smallest item of the right shard
+     * is taken out to be the joining node.
+     * Complexity: O(logn)
+     */
+    private void joinShards(int index) {
+        Shard left = shards[index];
+        Shard right = shards[index + 1];
+        left.lock.lock(); // in key order, like every multi-shard lock
+        right.lock.lock();
+        try {
+            AVLTree tree = left.tree;
+            if (!right.tree.empty()) {
+                AVLTree.IAVLNode min = right.tree.selectNode(0);
+                int k = min.getKey();
+                String info = min.getValue();
+                right.tree.delete(k);
+                tree.join(tree.createNewNode(k, info), right.tree);
+            }
+            replace(index, 2, new Shard(left.lo, tree));
+            left.retired = true;
+            right.retired = true;
+        } finally {
+            right.lock.unlock();
+            left.lock.unlock();
+        }
+    }
+
+    /**
+     * private void replace(int index, int count, Shard... replacements)
+     * Publishes a new layout where shards [index, index + count) are replaced.
+     * Complexity: O(shards)
+     */
+    private void replace(int index, int count, Shard... replacements) {
+        Shard[] old = shards;
+        Shard[] layout = new Shard[old.length - count + replacements.length];
+        System.arraycopy(old, 0, layout, 0, index);
+        System.arraycopy(replacements, 0, layout, index, replacements.length);
+        System.arraycopy(old, index + count, layout, index + replacements.length, old.length - index - count);
+        shards = layout;
+    }
+
+    private int shardSize(int index) {
+        Shard s = shards[index];
+        s.lock.lock();
+        try {
+            return s.tree.size();
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    private static Shard shardFor(Shard[] layout, int k) {
+        return layout[indexFor(layout, k)];
+    }
+
+    /**
+     * private static int indexFor(Shard[] layout, int k)
+     * Returns the index of the last shard whose lo is <= k, by binary search.
+     * Complexity: O(log(shards))
+     */
+    private static int indexFor(Shard[] layout, int k) {
+        int lo = 0, hi = layout.length - 1; // answer in [lo, hi]
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (layout[mid].lo <= k) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+}
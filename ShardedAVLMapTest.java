@@ -0,0 +1,102 @@
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedAVLMapTest {
+
+    @org.junit.jupiter.api.Test
+    void operationsAcrossShards() {
+        ShardedAVLMap m = new ShardedAVLMap(8);
+        assertEquals(8, m.shardCount());
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        Random random = new Random(22);
+        for (int i = 0; i < 5000; i++) {
+            int k = random.nextInt();
+            assertEquals(expected.containsKey(k), m.insert(k, "v" + k) == -1);
+            expected.putIfAbsent(k, "v" + k);
+        }
+        assertEquals(-1, m.insert(expected.firstKey(), "again"));
+        assertEquals(expected.size(), m.size());
+        assertEquals(expected.get(expected.lastKey()), m.search(expected.lastKey()));
+        assertNotEquals(-1, m.delete(expected.firstKey()));
+        expected.remove(expected.firstKey());
+        assertEquals(-1, m.delete(expected.firstKey() - 1));
+        assertNull(m.search(Integer.MIN_VALUE));
+
+        Integer[] keys = expected.keySet().toArray(new Integer[0]);
+        for (int i = 0; i < keys.length; i += 97) {
+            assertEquals(keys[i], m.select(i));
+            assertEquals(i, m.rank(keys[i]));
+        }
+        assertEquals(-1, m.select(keys.length));
+        assertEquals(keys.length, m.rank(Integer.MAX_VALUE));
+
+        int lo = keys[100], hi = keys[3000];
+        int count = 0;
+        for (Map.Entry<Integer, String> e : m.rangeScan(lo, hi)) {
+            assertEquals(keys[100 + count], e.getKey());
+            assertEquals("v" + e.getKey(), e.getValue());
+            count++;
+        }
+        assertEquals(2901, count);
+        count = 0;
+        for (Map.Entry<Integer, String> ignored : m.rangeScan(Integer.MIN_VALUE, Integer.MAX_VALUE)) count++;
+        assertEquals(keys.length, count);
+        assertFalse(m.rangeScan(5, 4).iterator().hasNext());
+    }
+
+    @org.junit.jupiter.api.Test
+    void rebalanceSplitsAndJoins() {
+        ShardedAVLMap m = new ShardedAVLMap(4);
+        for (int k = 0; k < 10000; k++) m.insert(k, "v" + k); // all in one shard
+        assertTrue(m.rebalance(1000) > 0);
+        for (int size : m.shardSizes()) assertTrue(size <= 1000);
+        assertTrue(m.shardCount() >= 10);
+        assertEquals(10000, m.size());
+        assertEquals(5000, m.select(5000));
+        assertEquals("v9999", m.search(9999));
+
+        for (int k = 0; k < 9990; k++) m.delete(k);
+        assertTrue(m.rebalance(1000) > 0);
+        assertTrue(m.shardCount() < 10);
+        assertEquals(10, m.size());
+        assertEquals(9990, m.select(0));
+        assertEquals(0, m.rank(9990));
+    }
+
+    @org.junit.jupiter.api.Test
+    void concurrentWritersWithRebalancing() throws InterruptedException {
+        ShardedAVLMap m = new ShardedAVLMap(2);
+        int writers = 4, perWriter = 20000;
+        AtomicBoolean done = new AtomicBoolean();
+        Thread[] threads = new Thread[writers];
+        for (int w = 0; w < writers; w++) {
+            int id = w;
+            threads[w] = new Thread(() -> {
+                for (int i = 0; i < perWriter; i++) m.insert(i * writers + id, "w" + id);
+                for (int i = 0; i < perWriter; i += 2) m.delete(i * writers + id);
+            });
+            threads[w].start();
+        }
+        Thread rebalancer = new Thread(() -> {
+            while (!done.get()) m.rebalance(2000);
+        });
+        rebalancer.start();
+        for (Thread t : threads) t.join();
+        done.set(true);
+        rebalancer.join();
+
+        assertEquals(writers * perWriter / 2, m.size());
+        int count = 0; // the keys left are (2j + 1) * writers + id
+        for (Map.Entry<Integer, String> e : m.rangeScan(0, Integer.MAX_VALUE)) {
+            int i = e.getKey() / writers;
+            assertEquals(1, i % 2);
+            assertEquals("w" + e.getKey() % writers, e.getValue());
+            count++;
+        }
+        assertEquals(writers * perWriter / 2, count);
+    }
+}
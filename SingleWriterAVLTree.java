@@ -0,0 +1,185 @@
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SingleWriterAVLTree
+ * <p>
+ * An AVL tree for one writer thread and any number of reader threads, in the style of RCU (read-copy-update).
+ * The writer applies its mutations to a private PersistentAVLTree version, and publishes that version through a
+ * volatile field every publishEveryOps mutations, once publishEveryMillis passed since the last publication, or
+ * when publish() is called. Readers search the last published version: a plain volatile read and then an immutable
+ * tree, with no locks, no CAS and no writes to shared memory - so their throughput doesn't depend on the write rate,
+ * and a reader holding a snapshot() sees one consistent version.
+ * <p>
+ * The time limit holds even when the writer goes idle: a shared daemon timer publishes versions which stayed
+ * unpublished for publishEveryMillis, so every mutation is visible to readers within about 1.25 * publishEveryMillis.
+ * Publications (by the writer or the timer) are serialized by a lock, which readers never take.
+ * <p>
+ * The writer pays the path copying of PersistentAVLTree, O(logn) new nodes per mutation. Old versions are
+ * reclaimed by the garbage collector once no reader holds them, which is the grace period of RCU.
+ * The writer methods must only be called by one thread at a time.
+ */
+public final class SingleWriterAVLTree {
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "SingleWriterAVLTree-publisher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * private static final class Version
+     * A version of the tree, with the number of mutations which produced it.
+     */
+    private static final class Version {
+        final PersistentAVLTree tree;
+        final long mutations;
+
+        Version(PersistentAVLTree tree, long mutations) {
+            this.tree = tree;
+            this.mutations = mutations;
+        }
+    }
+
+    private final int publishEveryOps;
+    private final long publishEveryNanos;
+    private final Object publishLock = new Object();
+
+    private volatile Version published = new Version(PersistentAVLTree.empty(), 0);
+    private volatile Version working = published; // written by the writer only, read by the timer
+    private volatile long lastPublish = System.nanoTime();
+
+    /**
+     * public SingleWriterAVLTree(int publishEveryOps, long publishEveryMillis)
+     * Creates an empty tree whose mutations are published every publishEveryOps mutations, and at most
+     * publishEveryMillis ms (plus a quarter, the timer's period) after they were made. publishEveryOps = 1 publishes
+     * every mutation; publishEveryMillis = Long.MAX_VALUE disables the time limit (and the timer).
+     * Complexity: O(1)
+     */
+    public SingleWriterAVLTree(int publishEveryOps, long publishEveryMillis) {
+        if (publishEveryOps < 1 || publishEveryMillis < 0)
+            throw new IllegalArgumentException("publishEveryOps must be positive and publishEveryMillis non-negative");
+        this.publishEveryOps = publishEveryOps;
+        this.publishEveryNanos = TimeUnit.MILLISECONDS.toNanos(publishEveryMillis); // saturates
+        if (publishEveryMillis > 0 && publishEveryMillis < Long.MAX_VALUE) {
+            // with a limit of 0 every mutation is published by the writer itself
+            new Publisher(this, Math.max(1, publishEveryMillis / 4));
+        }
+    }
+
+    /**
+     * private static final class Publisher
+     * The timer task of one tree. It only holds the tree weakly, and cancels itself once the tree is collected.
+     */
+    private static final class Publisher implements Runnable {
+        private final WeakReference<SingleWriterAVLTree> tree;
+        private volatile ScheduledFuture<?> future; // set right after scheduling, long before it's needed
+
+        Publisher(SingleWriterAVLTree tree, long periodMillis) {
+            this.tree = new WeakReference<>(tree);
+            this.future = TIMER.scheduleWithFixedDelay(this, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void run() {
+            SingleWriterAVLTree t = tree.get();
+            if (t == null) {
+                future.cancel(false);
+            } else if (t.working != t.published && System.nanoTime() - t.lastPublish >= t.publishEveryNanos) {
+                t.publish();
+            }
+        }
+    }
+
+    /**
+     * public boolean insert(int k, String i)
+     * Writer only. Inserts k -> i into the working version. Returns false if k already exists.
+     * Complexity: O(logn)
+     */
+    public boolean insert(int k, String i) {
+        Version w = working;
+        PersistentAVLTree next = w.tree.insert(k, i);
+        if (next == w.tree) return false;
+        mutated(new Version(next, w.mutations + 1));
+        return true;
+    }
+
+    /**
+     * public boolean delete(int k)
+     * Writer only. Deletes k from the working version. Returns false if k wasn't found.
+     * Complexity: O(logn)
+     */
+    public boolean delete(int k) {
+        Version w = working;
+        PersistentAVLTree next = w.tree.delete(k);
+        if (next == w.tree) return false;
+        mutated(new Version(next, w.mutations + 1));
+        return true;
+    }
+
+    /**
+     * public void publish()
+     * Makes all mutations so far visible to readers. Called by the writer, or by the timer.
+     * Complexity: O(1)
+     */
+    public void publish() {
+        synchronized (publishLock) { // working is read inside the lock, so published never goes back
+            published = working; // the volatile write orders the version's nodes before it, for every reader
+            lastPublish = System.nanoTime();
+        }
+    }
+
+    /**
+     * public int unpublishedOps()
+     * Returns the number of mutations which readers can't see yet.
+     * Complexity: O(1)
+     */
+    public int unpublishedOps() {
+        return (int) (working.mutations - published.mutations);
+    }
+
+    /**
+     * public PersistentAVLTree latest()
+     * Writer only. Returns the working version, including the unpublished mutations.
+     * Complexity: O(1)
+     */
+    public PersistentAVLTree latest() {
+        return working.tree;
+    }
+
+    /**
+     * public PersistentAVLTree snapshot()
+     * Returns the last published version. It never changes, so any number of reads on it are consistent.
+     * Complexity: O(1)
+     */
+    public PersistentAVLTree snapshot() {
+        return published.tree;
+    }
+
+    /**
+     * public String search(int k)
+     * returns the info of k in the last published version, or null if it isn't there
+     * Complexity: O(logn)
+     */
+    public String search(int k) {
+        return published.tree.search(k);
+    }
+
+    /**
+     * public int size()
+     * Returns the number of items in the last published version.
+     * Complexity: O(1)
+     */
+    public int size() {
+        return published.tree.size();
+    }
+
+    private void mutated(Version next) {
+        working = next;
+        if (next.mutations - published.mutations >= publishEveryOps || System.nanoTime() - lastPublish >= publishEveryNanos)
+            publish();
+    }
+}
@@ -0,0 +1,93 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleWriterAVLTreeTest {
+
+    @org.junit.jupiter.api.Test
+    void publishesEveryNOps() {
+        SingleWriterAVLTree t = new SingleWriterAVLTree(3, Long.MAX_VALUE);
+        assertTrue(t.insert(1, "a"));
+        assertTrue(t.insert(2, "b"));
+        assertFalse(t.insert(2, "again"));
+        assertNull(t.search(1)); // not published yet
+        assertEquals(2, t.unpublishedOps());
+        assertEquals("b", t.latest().search(2));
+        PersistentAVLTree before = t.snapshot();
+
+        assertTrue(t.delete(1));
+        assertEquals(0, t.unpublishedOps());
+        assertNull(t.search(1));
+        assertEquals("b", t.search(2));
+        assertEquals(1, t.size());
+        assertTrue(before.isEmpty()); // an old snapshot doesn't change
+
+        assertFalse(t.delete(1));
+        assertTrue(t.insert(3, "c"));
+        t.publish();
+        assertEquals("c", t.search(3));
+    }
+
+    @org.junit.jupiter.api.Test
+    void publishesAfterTimeLimit() throws InterruptedException {
+        long start = System.nanoTime(); // before the tree's clock starts
+        SingleWriterAVLTree t = new SingleWriterAVLTree(Integer.MAX_VALUE, 200);
+        t.insert(1, "a");
+        String early = t.search(1);
+        if (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(200)) assertNull(early); // unless the test stalled
+        long deadline = start + TimeUnit.SECONDS.toNanos(5);
+        while (t.search(1) == null && System.nanoTime() < deadline) Thread.sleep(5);
+        long elapsed = System.nanoTime() - start;
+        assertEquals("a", t.search(1));
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(200), "published after " + elapsed + " ns");
+
+        assertThrows(IllegalArgumentException.class, () -> new SingleWriterAVLTree(0, 10));
+    }
+
+    @org.junit.jupiter.api.Test
+    void publishesWhenTheWriterIsIdle() throws InterruptedException {
+        SingleWriterAVLTree t = new SingleWriterAVLTree(Integer.MAX_VALUE, 20);
+        t.insert(1, "a");
+        t.insert(2, "b");
+        // no more mutations - the timer has to publish them
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (t.search(2) == null && System.nanoTime() < deadline) Thread.sleep(5);
+        assertEquals("a", t.search(1));
+        assertEquals("b", t.search(2));
+        assertEquals(0, t.unpublishedOps());
+
+        SingleWriterAVLTree never = new SingleWriterAVLTree(Integer.MAX_VALUE, Long.MAX_VALUE);
+        never.insert(1, "a");
+        Thread.sleep(50);
+        assertNull(never.search(1)); // no time limit, no timer
+        assertEquals(1, never.unpublishedOps());
+    }
+
+    @org.junit.jupiter.api.Test
+    void readersSeeConsistentVersions() throws InterruptedException {
+        SingleWriterAVLTree t = new SingleWriterAVLTree(64, 1);
+        int n = 200000;
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread[] readers = new Thread[4];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                int lastSize = 0;
+                while (lastSize < n && failure.get() == null) {
+                    // the writer inserts 0, 1, 2, ... so every version holds exactly 0..size-1
+                    PersistentAVLTree v = t.snapshot();
+                    int size = v.size();
+                    if (size < lastSize) failure.set("version went back");
+                    if (size > 0 && (v.search(size - 1) == null || v.search(size) != null)) failure.set("torn version");
+                    lastSize = size;
+                }
+            });
+            readers[r].start();
+        }
+        for (int k = 0; k < n; k++) t.insert(k, "v" + k);
+        t.publish();
+        for (Thread reader : readers) reader.join();
+        assertNull(failure.get());
+        assertEquals(n, t.size());
+    }
+}
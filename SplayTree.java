@@ -0,0 +1,382 @@
+import java.util.ArrayDeque;
+
+/**
+ * SplayTree
+ * <p>
+ * A self-adjusting binary search tree (Sleator and Tarjan) with distinct integer keys and String info, with the same
+ * public operations as AVLTree (search, insert, delete, min, max, keysToArray, infoToArray, split, join).
+ * Every access splays the accessed node to the root, so recently and frequently used keys stay near the top:
+ * the amortized cost of an access is O(log(n / frequency of the key)), which beats AVLTree's O(logn) on skewed
+ * workloads, at the price of rotations on every access (reads included) and no worst case bound per operation.
+ * <p>
+ * Splaying is top-down and keeps subtree sizes (Sleator's top-down-size-splay), so split and join are
+ * O(logn) amortized, and rank and select are available.
+ * Not thread-safe - even search restructures the tree.
+ */
+public class SplayTree {
+
+    private Node root;
+    private final Node header = new Node(0, null); // the left and right trees being assembled by splay
+    private int rotations; // rotations made by the current operation
+
+    /**
+     * static class Node
+     * A node of the tree; size is the number of nodes in its subtree.
+     */
+    static final class Node {
+        int key;
+        String info;
+        Node left;
+        Node right;
+        int size = 1;
+
+        Node(int key, String info) {
+            this.key = key;
+            this.info = info;
+        }
+    }
+
+    /**
+     * public SplayTree()
+     * SplayTree constructor - an empty tree
+     * Complexity: O(1)
+     */
+    public SplayTree() {
+        this.root = null;
+    }
+
+    private SplayTree(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * public boolean empty()
+     * returns true if and only if the tree is empty
+     * Complexity: O(1)
+     */
+    public boolean empty() {
+        return root == null;
+    }
+
+    /**
+     * public int size()
+     * Returns the number of items in the tree.
+     * Complexity: O(1)
+     */
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * public int getRank()
+     * Returns the height of the tree (-1 for an empty tree), which is only bounded by n - 1. Breadth-first,
+     * since the tree may be a path.
+     * Complexity: O(n)
+     */
+    public int getRank() {
+        if (root == null) return -1;
+        ArrayDeque<Node> level = new ArrayDeque<>();
+        level.add(root);
+        int height = -1;
+        while (!level.isEmpty()) {
+            height++;
+            for (int count = level.size(); count > 0; count--) {
+                Node n = level.poll();
+                if (n.left != null) level.add(n.left);
+                if (n.right != null) level.add(n.right);
+            }
+        }
+        return height;
+    }
+
+    /**
+     * public String search(int k)
+     * returns the info of an item with key k if it exists in the tree
+     * otherwise, returns null
+     * The last node on the search path is splayed to the root.
+     * Complexity: O(logn) amortized
+     */
+    public String search(int k) {
+        if (root == null) return null;
+        root = splay(root, k);
+        return root.key == k ? root.info : null;
+    }
+
+    /**
+     * public int insert(int k, String i)
+     * inserts an item with key k and info i to the tree; the new item becomes the root.
+     * returns the number of rotations made, or -1 if an item with key k already exists in the tree
+     * (it is splayed to the root anyway).
+     * Complexity: O(logn) amortized
+     */
+    public int insert(int k, String i) {
+        rotations = 0;
+        Node n = new Node(k, i);
+        if (root != null) {
+            root = splay(root, k);
+            if (root.key == k) return -1;
+            if (k < root.key) {
+                n.left = root.left;
+                n.right = root;
+                root.left = null;
+            } else {
+                n.right = root.right;
+                n.left = root;
+                root.right = null;
+            }
+            update(root);
+            update(n);
+        }
+        root = n;
+        return rotations;
+    }
+
+    /**
+     * public int delete(int k)
+     * deletes an item with key k from the tree, if it is there: k is splayed to the root, and its subtrees are
+     * joined by splaying the largest key of the left one.
+     * returns the number of rotations made, or -1 if an item with key k was not found in the tree.
+     * Complexity: O(logn) amortized
+     */
+    public int delete(int k) {
+        if (root == null) return -1;
+        rotations = 0;
+        root = splay(root, k);
+        if (root.key != k) return -1;
+        root = join(root.left, root.right);
+        return rotations;
+    }
+
+    /**
+     * public String min()
+     * Returns the info of the item with the smallest key in the tree, or null if the tree is empty.
+     * It is splayed to the root.
+     * Complexity: O(logn) amortized
+     */
+    public String min() {
+        if (root == null) return null;
+        root = splay(root, Integer.MIN_VALUE);
+        return root.info;
+    }
+
+    /**
+     * public String max()
+     * Returns the info of the item with the largest key in the tree, or null if the tree is empty.
+     * It is splayed to the root.
+     * Complexity: O(logn) amortized
+     */
+    public String max() {
+        if (root == null) return null;
+        root = splay(root, Integer.MAX_VALUE);
+        return root.info;
+    }
+
+    /**
+     * public int[] keysToArray()
+     * Returns a sorted array which contains all keys in the tree. Iterative, since the tree may be a path.
+     * Complexity: O(n)
+     */
+    public int[] keysToArray() {
+        int[] arr = new int[size()];
+        int i = 0;
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        for (Node n = root; n != null || !stack.isEmpty(); n = n.right) {
+            while (n != null) {
+                stack.push(n);
+                n = n.left;
+            }
+            n = stack.pop();
+            arr[i++] = n.key;
+        }
+        return arr;
+    }
+
+    /**
+     * public String[] infoToArray()
+     * Returns an array which contains all info in the tree, sorted by their respective keys.
+     * Complexity: O(n)
+     */
+    public String[] infoToArray() {
+        String[] arr = new String[size()];
+        int i = 0;
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        for (Node n = root; n != null || !stack.isEmpty(); n = n.right) {
+            while (n != null) {
+                stack.push(n);
+                n = n.left;
+            }
+            n = stack.pop();
+            arr[i++] = n.info;
+        }
+        return arr;
+    }
+
+    /**
+     * public int rank(int k)
+     * Returns the number of keys in the tree smaller than k. The last node on the search path is splayed.
+     * Complexity: O(logn) amortized
+     */
+    public int rank(int k) {
+        if (root == null) return 0;
+        root = splay(root, k);
+        return size(root.left) + (root.key < k ? 1 : 0);
+    }
+
+    /**
+     * public int select(int i)
+     * Returns the i-th smallest key (0-based), or -1 if i is out of range. It is splayed to the root.
+     * Complexity: O(logn) amortized
+     */
+    public int select(int i) {
+        if (i < 0 || i >= size()) return -1;
+        Node n = root;
+        while (size(n.left) != i) {
+            if (i < size(n.left)) {
+                n = n.left;
+            } else {
+                i -= size(n.left) + 1;
+                n = n.right;
+            }
+        }
+        int k = n.key;
+        root = splay(root, k);
+        return k;
+    }
+
+    /**
+     * public SplayTree[] split(int x)
+     * splits the tree into 2 trees according to the key x.
+     * Returns an array [t1, t2] with two trees. keys(t1) < x < keys(t2).
+     * x is splayed to the root and its subtrees are cut off; x doesn't have to be in the tree
+     * (its neighbour at the root goes to the side it belongs to). The tree shouldn't be used afterwards.
+     * Complexity: O(logn) amortized
+     */
+    public SplayTree[] split(int x) {
+        if (root == null) return new SplayTree[]{new SplayTree(), new SplayTree()};
+        Node r = splay(root, x);
+        Node small, big;
+        if (r.key == x) {
+            small = r.left;
+            big = r.right;
+        } else if (r.key < x) {
+            small = r;
+            big = r.right;
+            r.right = null;
+            update(r);
+        } else {
+            small = r.left;
+            big = r;
+            r.left = null;
+            update(r);
+        }
+        root = null;
+        return new SplayTree[]{new SplayTree(small), new SplayTree(big)};
+    }
+
+    /**
+     * public int join(int k, String i, SplayTree t)
+     * joins t and the item k -> i into this tree (t shouldn't be used afterwards): k becomes the root,
+     * with the smaller tree on its left and the bigger one on its right.
+     * Returns the number of rotations made, which is 0.
+     * precondition: keys(t) < k < keys() or keys() < k < keys(t)
+     * Complexity: O(1)
+     */
+    public int join(int k, String i, SplayTree t) {
+        boolean thisIsSmaller = root != null ? root.key < k : t.root == null || t.root.key > k; // any key tells the side
+        Node n = new Node(k, i);
+        n.left = thisIsSmaller ? this.root : t.root;
+        n.right = thisIsSmaller ? t.root : this.root;
+        update(n);
+        this.root = n;
+        t.root = null;
+        return 0;
+    }
+
+    /**
+     * private Node join(Node small, Node big)
+     * Joins two trees whose keys are all smaller in small than in big, by splaying the largest key of small
+     * (it then has no right child).
+     * Complexity: O(logn) amortized
+     */
+    private Node join(Node small, Node big) {
+        if (small == null) return big;
+        small = splay(small, Integer.MAX_VALUE);
+        small.right = big;
+        update(small);
+        return small;
+    }
+
+    /**
+     * private Node splay(Node t, int k)
+     * Top-down splay: brings the node with key k, or the last node on its search path, to the root of t and
+     * returns it. The nodes passed on the way are linked into a left tree (keys < k) and a right tree (keys > k),
+     * which become the subtrees of the new root; zig-zig steps rotate first, halving the depth of the path.
+     * The sizes on the two linking paths are fixed in a second pass from the accumulated totals.
+     * Complexity: O(logn) amortized
+     */
+    private Node splay(Node t, int k) {
+        Node l = header, r = header;
+        header.left = header.right = null;
+        int leftSize = 0, rightSize = 0;
+        while (true) {
+            if (k < t.key) {
+                if (t.left == null) break;
+                if (k < t.left.key) { // zig-zig: rotate right
+                    Node y = t.left;
+                    t.left = y.right;
+                    y.right = t;
+                    update(t);
+                    t = y;
+                    rotations++;
+                    if (t.left == null) break;
+                }
+                r.left = t; // link right
+                r = t;
+                t = t.left;
+                rightSize += 1 + size(r.right);
+            } else if (k > t.key) {
+                if (t.right == null) break;
+                if (k > t.right.key) { // zig-zig: rotate left
+                    Node y = t.right;
+                    t.right = y.left;
+                    y.left = t;
+                    update(t);
+                    t = y;
+                    rotations++;
+                    if (t.right == null) break;
+                }
+                l.right = t; // link left
+                l = t;
+                t = t.right;
+                leftSize += 1 + size(l.left);
+            } else {
+                break;
+            }
+        }
+        leftSize += size(t.left);
+        rightSize += size(t.right);
+        t.size = leftSize + rightSize + 1;
+        l.right = r.left = null;
+        for (Node y = header.right; y != null; y = y.right) { // the right path of the left tree
+            y.size = leftSize;
+            leftSize -= 1 + size(y.left);
+        }
+        for (Node y = header.left; y != null; y = y.left) { // the left path of the right tree
+            y.size = rightSize;
+            rightSize -= 1 + size(y.right);
+        }
+        l.right = t.left;
+        r.left = t.right;
+        t.left = header.right;
+        t.right = header.left;
+        return t;
+    }
+
+    private static int size(Node n) {
+        return n == null ? 0 : n.size;
+    }
+
+    private static void update(Node n) {
+        n.size = size(n.left) + size(n.right) + 1;
+    }
+}
@@ -0,0 +1,98 @@
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SplayTreeTest {
+
+    private static int[] keys(java.util.Map<Integer, String> m) {
+        return m.keySet().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @org.junit.jupiter.api.Test
+    void init() {
+        SplayTree t1 = new SplayTree();
+        assertTrue(t1.empty());
+        assertEquals(-1, t1.getRank());
+        assertNull(t1.min());
+        assertNull(t1.max());
+        assertNull(t1.search(1));
+        assertEquals(-1, t1.delete(1));
+    }
+
+    @org.junit.jupiter.api.Test
+    void selfAdjusting() {
+        SplayTree t1 = new SplayTree();
+        for (int i = 0; i < 100000; i++) assertEquals(0, t1.insert(i, "Key is " + i)); // each becomes the root
+        assertEquals(99999, t1.getRank()); // a path
+        assertEquals(-1, t1.insert(5, "again"));
+        assertTrue(t1.getRank() < 99999); // splaying the deepest key halved the path
+        assertEquals("Key is 5", t1.search(5));
+        assertEquals(5, t1.rank(5));
+        assertEquals(77777, t1.select(77777));
+        assertEquals("Key is 0", t1.min());
+        assertEquals("Key is 99999", t1.max());
+    }
+
+    @org.junit.jupiter.api.Test
+    void randomAgainstTreeMap() {
+        Random r = new Random(24);
+        SplayTree t1 = new SplayTree();
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        for (int i = 0; i < 200000; i++) {
+            int k = r.nextInt(20000);
+            switch (r.nextInt(6)) {
+                case 0:
+                case 1:
+                case 2:
+                    assertEquals(expected.containsKey(k), t1.insert(k, "v" + k) == -1);
+                    expected.putIfAbsent(k, "v" + k);
+                    break;
+                case 3:
+                case 4:
+                    assertEquals(!expected.containsKey(k), t1.delete(k) == -1);
+                    expected.remove(k);
+                    break;
+                default:
+                    assertEquals(expected.get(k), t1.search(k));
+                    assertEquals(expected.headMap(k).size(), t1.rank(k));
+            }
+            assertEquals(expected.size(), t1.size());
+        }
+        assertArrayEquals(keys(expected), t1.keysToArray());
+        assertArrayEquals(expected.values().toArray(new String[0]), t1.infoToArray());
+        for (int k = 0; k < 20000; k++) assertEquals(expected.get(k), t1.search(k));
+        assertEquals(expected.firstEntry().getValue(), t1.min());
+        assertEquals(expected.lastEntry().getValue(), t1.max());
+
+        for (int k : keys(expected)) assertNotEquals(-1, t1.delete(k));
+        assertTrue(t1.empty());
+    }
+
+    @org.junit.jupiter.api.Test
+    void splitAndJoin() {
+        Random r = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            SplayTree t1 = new SplayTree();
+            TreeMap<Integer, String> expected = new TreeMap<>();
+            for (int i = r.nextInt(2000); i > 0; i--) {
+                int k = r.nextInt(10000) * 2;
+                t1.insert(k, "Key is " + k);
+                expected.put(k, "Key is " + k);
+            }
+            int x = r.nextInt(20000);
+            SplayTree[] parts = t1.split(x); // x doesn't have to be in the tree
+            assertArrayEquals(keys(expected.headMap(x)), parts[0].keysToArray());
+            assertArrayEquals(keys(expected.tailMap(x, false)), parts[1].keysToArray());
+            assertEquals(expected.headMap(x).size(), parts[0].size());
+            assertEquals(expected.tailMap(x, false).size(), parts[1].size());
+
+            assertEquals(0, parts[1].join(x, "x", parts[0]));
+            assertTrue(parts[0].empty());
+            expected.put(x, "x");
+            assertArrayEquals(keys(expected), parts[1].keysToArray());
+            assertEquals(expected.size(), parts[1].size());
+            assertEquals(expected.headMap(x).size(), parts[1].rank(x));
+        }
+    }
+}
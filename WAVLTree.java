@@ -0,0 +1,428 @@
+import java.util.Arrays;
+
+/**
+ * WAVLTree
+ * <p>
+ * A weak AVL tree (Haeupler, Sen and Tarjan, "Rank-Balanced Trees") with distinct integer keys and String info,
+ * with the same public operations as AVLTree (search, insert, delete, min, max, keysToArray, infoToArray, split,
+ * join). Every node has a rank, and the rank difference between a node and each of its children is 1 or 2
+ * (a missing child has rank -1, so leaves have rank 0). Insertion rebalances exactly like AVLTree, so a tree built by
+ * inserts only is an AVL tree; deletion only demotes on its way up and then stops with at most one single or double
+ * rotation - at most two rotations per delete, and O(1) amortized rank changes per update, where AVLTree.delete may
+ * rotate at every level up to the root. The price is a height of at most 2log(n) after deletes (vs 1.44log(n)).
+ * <p>
+ * Rebalancing counts as in AVLTree.rebalance: every rotation counts 1 and every promotion or demotion counts 1
+ * (so an insert's single rotation step counts 2 and a double one 5; a delete's single rotation step counts 3).
+ */
+public class WAVLTree {
+
+    private Node root;
+    private int size;
+    private int rotations; // rotations made by the current operation
+
+    /**
+     * static class Node
+     * A node of the tree, with its rank (not necessarily its height).
+     */
+    static final class Node {
+        int key;
+        String info;
+        Node left;
+        Node right;
+        Node parent;
+        int rank;
+
+        Node(int key, String info, Node parent) {
+            this.key = key;
+            this.info = info;
+            this.parent = parent;
+        }
+    }
+
+    /**
+     * public WAVLTree()
+     * WAVLTree constructor - an empty tree
+     * Complexity: O(1)
+     */
+    public WAVLTree() {
+        this.root = null;
+        this.size = 0;
+    }
+
+    /**
+     * public boolean empty()
+     * returns true if and only if the tree is empty
+     * Complexity: O(1)
+     */
+    public boolean empty() {
+        return root == null;
+    }
+
+    /**
+     * public int size()
+     * Returns the number of items in the tree.
+     * Complexity: O(1)
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * public int getRank()
+     * Returns the rank of the root, -1 for an empty tree. It is at least the height of the tree.
+     * Complexity: O(1)
+     */
+    public int getRank() {
+        return rank(root);
+    }
+
+    /**
+     * public String search(int k)
+     * returns the info of an item with key k if it exists in the tree
+     * otherwise, returns null
+     * Complexity: O(logn)
+     */
+    public String search(int k) {
+        Node n = find(k);
+        return n == null ? null : n.info;
+    }
+
+    private Node find(int k) {
+        Node n = root;
+        while (n != null && n.key != k) n = k < n.key ? n.left : n.right;
+        return n;
+    }
+
+    /**
+     * public int insert(int k, String i)
+     * inserts an item with key k and info i to the tree, as a leaf of rank 0, then promotes up the tree while
+     * a node has a child of the same rank, and finishes with at most one single or double rotation.
+     * returns the number of rebalancing operations, or -1 if an item with key k already exists in the tree.
+     * Complexity: O(logn), O(1) amortized rebalancing
+     */
+    public int insert(int k, String i) {
+        rotations = 0;
+        if (root == null) {
+            root = new Node(k, i, null);
+            size = 1;
+            return 0;
+        }
+        Node p = root;
+        while (true) {
+            if (k == p.key) return -1;
+            Node c = k < p.key ? p.left : p.right;
+            if (c == null) break;
+            p = c;
+        }
+        Node x = new Node(k, i, p);
+        if (k < p.key) p.left = x;
+        else p.right = x;
+        size++;
+
+        int counter = 0;
+        while (p != null && p.rank == x.rank) { // x is a 0-child
+            Node s = x == p.left ? p.right : p.left;
+            if (p.rank - rank(s) == 1) {
+                p.rank++; // promote, the violation moves up
+                counter++;
+                x = p;
+                p = x.parent;
+                continue;
+            }
+            Node y = x == p.left ? x.right : x.left; // the inner child of x
+            if (x.rank - rank(y) == 2) { // y is a 2-child
+                rotateUp(x);
+                p.rank--;
+                counter += 2;
+            } else {
+                rotateUp(y);
+                rotateUp(y);
+                y.rank++;
+                x.rank--;
+                p.rank--;
+                counter += 5;
+            }
+            break;
+        }
+        return counter;
+    }
+
+    /**
+     * public int delete(int k)
+     * deletes an item with key k from the tree, if it is there: a binary node takes the item of its successor,
+     * which is removed instead. Then demotes up the tree while a node has a 3-child (or is a leaf of rank 1), and
+     * finishes with at most one single or double rotation - so at most two rotations per delete.
+     * returns the number of rebalancing operations, or -1 if an item with key k was not found in the tree.
+     * Complexity: O(logn), O(1) amortized rebalancing
+     */
+    public int delete(int k) {
+        Node z = find(k);
+        if (z == null) return -1;
+        rotations = 0;
+        size--;
+        if (z.left != null && z.right != null) {
+            Node y = z.right;
+            while (y.left != null) y = y.left;
+            z.key = y.key;
+            z.info = y.info;
+            z = y;
+        }
+        Node x = z.left != null ? z.left : z.right; // z has at most one child
+        Node p = z.parent;
+        replace(z, x);
+        if (p == null) return 0;
+
+        int counter = 0;
+        if (p.left == null && p.right == null && p.rank == 1) { // a 2,2-leaf
+            p.rank = 0;
+            counter++;
+            x = p;
+            p = x.parent;
+        }
+        while (p != null && p.rank - rank(x) == 3) { // x is a 3-child; its sibling isn't null, p.rank >= 2
+            Node s = x == p.left ? p.right : p.left;
+            if (p.rank - s.rank == 2) {
+                p.rank--; // demote, the violation moves up
+                counter++;
+                x = p;
+                p = x.parent;
+                continue;
+            }
+            Node t = s == p.right ? s.left : s.right; // the inner child of s
+            Node u = s == p.right ? s.right : s.left; // the outer child of s
+            if (s.rank - rank(t) == 2 && s.rank - rank(u) == 2) {
+                p.rank--; // double demote
+                s.rank--;
+                counter += 2;
+                x = p;
+                p = x.parent;
+                continue;
+            }
+            if (s.rank - rank(u) == 1) {
+                rotateUp(s);
+                s.rank++;
+                p.rank--;
+                counter += 3;
+                if (p.left == null && p.right == null) { // a 2,2-leaf
+                    p.rank--;
+                    counter++;
+                }
+            } else {
+                rotateUp(t);
+                rotateUp(t);
+                t.rank += 2;
+                s.rank--;
+                p.rank -= 2;
+                counter += 7;
+            }
+            break;
+        }
+        return counter;
+    }
+
+    /**
+     * int lastRotations()
+     * Returns the number of rotations made by the last insert or delete.
+     * Complexity: O(1)
+     */
+    int lastRotations() {
+        return rotations;
+    }
+
+    /**
+     * public String min()
+     * Returns the info of the item with the smallest key in the tree, or null if the tree is empty
+     * Complexity: O(logn)
+     */
+    public String min() {
+        if (root == null) return null;
+        Node n = root;
+        while (n.left != null) n = n.left;
+        return n.info;
+    }
+
+    /**
+     * public String max()
+     * Returns the info of the item with the largest key in the tree, or null if the tree is empty
+     * Complexity: O(logn)
+     */
+    public String max() {
+        if (root == null) return null;
+        Node n = root;
+        while (n.right != null) n = n.right;
+        return n.info;
+    }
+
+    /**
+     * public int[] keysToArray()
+     * Returns a sorted array which contains all keys in the tree.
+     * Complexity: O(n)
+     */
+    public int[] keysToArray() {
+        int[] arr = new int[size];
+        fillKeys(root, arr, 0);
+        return arr;
+    }
+
+    private static int fillKeys(Node n, int[] arr, int i) {
+        if (n == null) return i;
+        i = fillKeys(n.left, arr, i);
+        arr[i++] = n.key;
+        return fillKeys(n.right, arr, i);
+    }
+
+    /**
+     * public String[] infoToArray()
+     * Returns an array which contains all info in the tree, sorted by their respective keys.
+     * Complexity: O(n)
+     */
+    public String[] infoToArray() {
+        String[] arr = new String[size];
+        fillInfos(root, arr, 0);
+        return arr;
+    }
+
+    private static int fillInfos(Node n, String[] arr, int i) {
+        if (n == null) return i;
+        i = fillInfos(n.left, arr, i);
+        arr[i++] = n.info;
+        return fillInfos(n.right, arr, i);
+    }
+
+    /**
+     * public WAVLTree[] split(int x)
+     * splits the tree into 2 trees according to the key x.
+     * Returns an array [t1, t2] with two trees. keys(t1) < x < keys(t2).
+     * Like BPlusTree.split, the items are exported and both halves are bulk-loaded;
+     * x doesn't have to be in the tree.
+     * Complexity: O(n)
+     */
+    public WAVLTree[] split(int x) {
+        int[] keys = keysToArray();
+        String[] infos = infoToArray();
+        int lo = Arrays.binarySearch(keys, x);
+        int leftEnd = lo >= 0 ? lo : -lo - 1;
+        int rightStart = lo >= 0 ? lo + 1 : leftEnd;
+        return new WAVLTree[]{
+                fromSorted(Arrays.copyOfRange(keys, 0, leftEnd), Arrays.copyOfRange(infos, 0, leftEnd)),
+                fromSorted(Arrays.copyOfRange(keys, rightStart, keys.length), Arrays.copyOfRange(infos, rightStart, keys.length))
+        };
+    }
+
+    /**
+     * public int join(int k, String i, WAVLTree t)
+     * joins t and the item k -> i into this tree (t shouldn't be used afterwards).
+     * Returns the difference of the ranks + 1, like AVLTree.join.
+     * precondition: keys(t) < k < keys() or keys() < k < keys(t)
+     * Like BPlusTree.join, both trees are exported and the result is bulk-loaded.
+     * Complexity: O(n)
+     */
+    public int join(int k, String i, WAVLTree t) {
+        int result = Math.abs(this.getRank() - t.getRank()) + 1;
+        boolean thisIsSmaller = root != null ? root.key < k : t.root == null || t.root.key > k; // any key tells the side
+        WAVLTree small = thisIsSmaller ? this : t;
+        WAVLTree big = thisIsSmaller ? t : this;
+        int n = small.size + 1 + big.size;
+        int[] keys = new int[n];
+        String[] infos = new String[n];
+        fillKeys(small.root, keys, 0);
+        fillInfos(small.root, infos, 0);
+        keys[small.size] = k;
+        infos[small.size] = i;
+        fillKeys(big.root, keys, small.size + 1);
+        fillInfos(big.root, infos, small.size + 1);
+        WAVLTree joined = fromSorted(keys, infos);
+        this.root = joined.root;
+        this.size = joined.size;
+        t.root = null;
+        t.size = 0;
+        return result;
+    }
+
+    /**
+     * public static WAVLTree fromSorted(int[] keys, String[] infos)
+     * Bulk-loads a tree from strictly increasing keys: the middle item becomes the root, recursively, and every
+     * rank is the height of its subtree (a perfectly balanced tree is an AVL tree, hence a WAVL tree).
+     * Complexity: O(n)
+     */
+    public static WAVLTree fromSorted(int[] keys, String[] infos) {
+        if (keys.length != infos.length)
+            throw new IllegalArgumentException("got " + keys.length + " keys but " + infos.length + " infos");
+        for (int j = 1; j < keys.length; j++) {
+            if (keys[j] <= keys[j - 1])
+                throw new IllegalArgumentException("keys must be strictly increasing, got " + keys[j] + " after " + keys[j - 1]);
+        }
+        WAVLTree t = new WAVLTree();
+        t.root = build(keys, infos, 0, keys.length, null);
+        t.size = keys.length;
+        return t;
+    }
+
+    private static Node build(int[] keys, String[] infos, int from, int to, Node parent) {
+        if (from == to) return null;
+        int mid = (from + to) >>> 1;
+        Node n = new Node(keys[mid], infos[mid], parent);
+        n.left = build(keys, infos, from, mid, n);
+        n.right = build(keys, infos, mid + 1, to, n);
+        n.rank = 1 + Math.max(rank(n.left), rank(n.right));
+        return n;
+    }
+
+    /**
+     * boolean isValid()
+     * Checks the invariants of the whole tree: key order, parent pointers, rank differences of 1 or 2, and leaves
+     * of rank 0.
+     * Complexity: O(n)
+     */
+    boolean isValid() {
+        return (root == null || root.parent == null) && isValid(root, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    private static boolean isValid(Node n, long lo, long hi) {
+        if (n == null) return true;
+        int dl = n.rank - rank(n.left), dr = n.rank - rank(n.right);
+        return lo < n.key && n.key < hi
+                && (dl == 1 || dl == 2) && (dr == 1 || dr == 2)
+                && (n.left != null || n.right != null || n.rank == 0)
+                && (n.left == null || n.left.parent == n) && (n.right == null || n.right.parent == n)
+                && isValid(n.left, lo, n.key) && isValid(n.right, n.key, hi);
+    }
+
+    /**
+     * private void rotateUp(Node x)
+     * Rotates x above its parent, keeping the key order. Ranks are left to the caller.
+     * Complexity: O(1)
+     */
+    private void rotateUp(Node x) {
+        Node p = x.parent;
+        if (x == p.left) {
+            p.left = x.right;
+            if (x.right != null) x.right.parent = p;
+            x.right = p;
+        } else {
+            p.right = x.left;
+            if (x.left != null) x.left.parent = p;
+            x.left = p;
+        }
+        replace(p, x);
+        p.parent = x;
+        rotations++;
+    }
+
+    /**
+     * private void replace(Node old, Node x)
+     * Puts x (possibly null) in the place of old under old's parent, or as the root.
+     * Complexity: O(1)
+     */
+    private void replace(Node old, Node x) {
+        Node p = old.parent;
+        if (x != null) x.parent = p;
+        if (p == null) root = x;
+        else if (p.left == old) p.left = x;
+        else p.right = x;
+    }
+
+    private static int rank(Node n) {
+        return n == null ? -1 : n.rank;
+    }
+}
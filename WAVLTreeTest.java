@@ -0,0 +1,98 @@
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WAVLTreeTest {
+
+    private static int[] keys(java.util.Map<Integer, String> m) {
+        return m.keySet().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @org.junit.jupiter.api.Test
+    void init() {
+        WAVLTree t1 = new WAVLTree();
+        assertTrue(t1.empty());
+        assertEquals(-1, t1.getRank());
+        assertNull(t1.min());
+        assertNull(t1.max());
+        assertNull(t1.search(1));
+        assertEquals(-1, t1.delete(1));
+    }
+
+    @org.junit.jupiter.api.Test
+    void insertLikeAVL() {
+        WAVLTree t1 = new WAVLTree();
+        AVLTree t2 = new AVLTree();
+        Random r = new Random(25);
+        for (int i = 0; i < 10000; i++) {
+            int k = r.nextInt(100000);
+            assertEquals(t2.insert(k, "v"), t1.insert(k, "v")); // the same rebalancing, counted the same way
+        }
+        assertTrue(t1.isValid());
+        assertEquals(t2.getRank(), t1.getRank());
+    }
+
+    @org.junit.jupiter.api.Test
+    void deletesRotateAtMostTwice() {
+        Random r = new Random(25);
+        WAVLTree t1 = new WAVLTree();
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        long work = 0, updates = 0;
+        for (int i = 0; i < 200000; i++) {
+            int k = r.nextInt(20000);
+            if (r.nextInt(5) < 3) {
+                assertEquals(expected.containsKey(k), t1.insert(k, "v" + k) == -1);
+                expected.putIfAbsent(k, "v" + k);
+                assertTrue(t1.lastRotations() <= 2);
+            } else {
+                int actions = t1.delete(k);
+                assertEquals(!expected.containsKey(k), actions == -1);
+                expected.remove(k);
+                assertTrue(t1.lastRotations() <= 2);
+                if (actions > 0) work += actions;
+            }
+            updates++;
+        }
+        assertTrue(work < 4 * updates, "amortized O(1) rebalancing, got " + work + " for " + updates);
+        assertTrue(t1.isValid());
+        assertEquals(expected.size(), t1.size());
+        assertArrayEquals(keys(expected), t1.keysToArray());
+        assertArrayEquals(expected.values().toArray(new String[0]), t1.infoToArray());
+        for (int k = 0; k < 20000; k++) assertEquals(expected.get(k), t1.search(k));
+        assertEquals(expected.firstEntry().getValue(), t1.min());
+        assertEquals(expected.lastEntry().getValue(), t1.max());
+
+        for (int k : keys(expected)) {
+            assertNotEquals(-1, t1.delete(k));
+            assertTrue(t1.lastRotations() <= 2);
+        }
+        assertTrue(t1.empty());
+        assertEquals(-1, t1.getRank());
+    }
+
+    @org.junit.jupiter.api.Test
+    void splitAndJoin() {
+        WAVLTree t1 = new WAVLTree();
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        for (int i = 0; i < 10000; i += 2) {
+            t1.insert(i, "Key is " + i);
+            expected.put(i, "Key is " + i);
+        }
+        WAVLTree[] parts = t1.split(5000);
+        assertTrue(parts[0].isValid() && parts[1].isValid());
+        assertArrayEquals(keys(expected.headMap(5000)), parts[0].keysToArray());
+        assertArrayEquals(keys(expected.tailMap(5000, false)), parts[1].keysToArray());
+        parts[1].insert(5001, "5001"); // the halves are regular trees
+        assertEquals(1, parts[1].join(5000, "Key is 5000", parts[0]));
+        assertTrue(parts[1].isValid());
+        assertEquals(5001, parts[1].size());
+        assertEquals("Key is 5000", parts[1].search(5000));
+        assertEquals("Key is 0", parts[1].min());
+        assertEquals(-1, parts[1].insert(5001, "5001"));
+
+        WAVLTree[] odd = parts[1].split(5001);
+        assertEquals(2501, odd[0].size());
+        assertEquals(2499, odd[1].size());
+    }
+}
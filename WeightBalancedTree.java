@@ -0,0 +1,447 @@
+/**
+ * WeightBalancedTree
+ * <p>
+ * A weight-balanced (BB[alpha]) binary search tree with distinct integer keys and String info, with the same public
+ * operations as AVLTree (search, insert, delete, min, max, keysToArray, infoToArray, split, join).
+ * Balance is kept on subtree sizes instead of heights: neither subtree of a node may hold more than DELTA times the
+ * items of the other, restored by single or double rotations (chosen by RATIO) - the parameters (3, 2) of Adams'
+ * trees as used by Haskell's Data.Map, whose correctness was proven by Hirai and Yamamoto.
+ * <p>
+ * Heights stay within about 2log(n), a little deeper than AVL, but the sizes the balance is kept on also give
+ * rank/select, and rebalancing is rarer: a subtree of size m is rebuilt by rotations only after Omega(m) updates
+ * below it. Split and join are O(logn) through link, which joins trees of any sizes around a middle item.
+ * Operations are recursive over the O(logn) height.
+ */
+public class WeightBalancedTree {
+
+    static final int DELTA = 3;
+    static final int RATIO = 2;
+
+    private Node root;
+    private int rebalanceOps; // rotations of the current operation, -1 if it was a no-op
+
+    /**
+     * static class Node
+     * A node of the tree; size is the number of nodes in its subtree.
+     */
+    static final class Node {
+        int key;
+        String info;
+        Node left;
+        Node right;
+        int size = 1;
+
+        Node(int key, String info) {
+            this.key = key;
+            this.info = info;
+        }
+    }
+
+    /**
+     * public WeightBalancedTree()
+     * WeightBalancedTree constructor - an empty tree
+     * Complexity: O(1)
+     */
+    public WeightBalancedTree() {
+        this.root = null;
+    }
+
+    private WeightBalancedTree(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * public boolean empty()
+     * returns true if and only if the tree is empty
+     * Complexity: O(1)
+     */
+    public boolean empty() {
+        return root == null;
+    }
+
+    /**
+     * public int size()
+     * Returns the number of items in the tree.
+     * Complexity: O(1)
+     */
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * public int getRank()
+     * Returns the height of the tree, -1 for an empty tree.
+     * Complexity: O(n)
+     */
+    public int getRank() {
+        return height(root);
+    }
+
+    private static int height(Node n) {
+        return n == null ? -1 : 1 + Math.max(height(n.left), height(n.right));
+    }
+
+    /**
+     * public String search(int k)
+     * returns the info of an item with key k if it exists in the tree
+     * otherwise, returns null
+     * Complexity: O(logn)
+     */
+    public String search(int k) {
+        Node n = root;
+        while (n != null) {
+            if (k == n.key) return n.info;
+            n = k < n.key ? n.left : n.right;
+        }
+        return null;
+    }
+
+    /**
+     * public int insert(int k, String i)
+     * inserts an item with key k and info i to the tree.
+     * returns the number of rotations made (a double rotation counts as 2), or -1 if an item with key k
+     * already exists in the tree.
+     * Complexity: O(logn)
+     */
+    public int insert(int k, String i) {
+        rebalanceOps = 0;
+        root = insert(root, k, i);
+        return rebalanceOps;
+    }
+
+    private Node insert(Node n, int k, String i) {
+        if (n == null) return new Node(k, i);
+        if (k < n.key) {
+            n.left = insert(n.left, k, i);
+        } else if (k > n.key) {
+            n.right = insert(n.right, k, i);
+        } else {
+            rebalanceOps = -1;
+            return n;
+        }
+        return rebalanceOps < 0 ? n : balance(n);
+    }
+
+    /**
+     * public int delete(int k)
+     * deletes an item with key k from the tree, if it is there; a binary node is replaced by the extreme item
+     * of its bigger subtree.
+     * returns the number of rotations made (a double rotation counts as 2), or -1 if an item with key k
+     * was not found in the tree.
+     * Complexity: O(logn)
+     */
+    public int delete(int k) {
+        rebalanceOps = -1;
+        root = delete(root, k);
+        return rebalanceOps;
+    }
+
+    private Node delete(Node n, int k) {
+        if (n == null) return null; // not found - rebalanceOps stays -1
+        if (k < n.key) {
+            n.left = delete(n.left, k);
+        } else if (k > n.key) {
+            n.right = delete(n.right, k);
+        } else {
+            rebalanceOps = 0;
+            return glue(n.left, n.right);
+        }
+        return rebalanceOps < 0 ? n : balance(n);
+    }
+
+    /**
+     * private Node glue(Node l, Node r)
+     * Joins the subtrees of a deleted node, which were balanced with each other: the root is taken from the bigger
+     * one, so the result is balanced.
+     * Complexity: O(logn)
+     */
+    private Node glue(Node l, Node r) {
+        if (l == null) return r;
+        if (r == null) return l;
+        Node m;
+        if (l.size > r.size) {
+            m = maxNode(l);
+            l = deleteMax(l);
+        } else {
+            m = minNode(r);
+            r = deleteMin(r);
+        }
+        m.left = l;
+        m.right = r;
+        update(m);
+        return m;
+    }
+
+    private Node deleteMin(Node n) {
+        if (n.left == null) return n.right;
+        n.left = deleteMin(n.left);
+        return balance(n);
+    }
+
+    private Node deleteMax(Node n) {
+        if (n.right == null) return n.left;
+        n.right = deleteMax(n.right);
+        return balance(n);
+    }
+
+    /**
+     * public String min()
+     * Returns the info of the item with the smallest key in the tree, or null if the tree is empty
+     * Complexity: O(logn)
+     */
+    public String min() {
+        return root == null ? null : minNode(root).info;
+    }
+
+    /**
+     * public String max()
+     * Returns the info of the item with the largest key in the tree, or null if the tree is empty
+     * Complexity: O(logn)
+     */
+    public String max() {
+        return root == null ? null : maxNode(root).info;
+    }
+
+    private static Node minNode(Node n) {
+        while (n.left != null) n = n.left;
+        return n;
+    }
+
+    private static Node maxNode(Node n) {
+        while (n.right != null) n = n.right;
+        return n;
+    }
+
+    /**
+     * public int[] keysToArray()
+     * Returns a sorted array which contains all keys in the tree.
+     * Complexity: O(n)
+     */
+    public int[] keysToArray() {
+        int[] arr = new int[size()];
+        fillKeys(root, arr, 0);
+        return arr;
+    }
+
+    private static int fillKeys(Node n, int[] arr, int i) {
+        if (n == null) return i;
+        i = fillKeys(n.left, arr, i);
+        arr[i++] = n.key;
+        return fillKeys(n.right, arr, i);
+    }
+
+    /**
+     * public String[] infoToArray()
+     * Returns an array which contains all info in the tree, sorted by their respective keys.
+     * Complexity: O(n)
+     */
+    public String[] infoToArray() {
+        String[] arr = new String[size()];
+        fillInfos(root, arr, 0);
+        return arr;
+    }
+
+    private static int fillInfos(Node n, String[] arr, int i) {
+        if (n == null) return i;
+        i = fillInfos(n.left, arr, i);
+        arr[i++] = n.info;
+        return fillInfos(n.right, arr, i);
+    }
+
+    /**
+     * public int rank(int k)
+     * Returns the number of keys in the tree smaller than k.
+     * Complexity: O(logn)
+     */
+    public int rank(int k) {
+        int rank = 0;
+        Node n = root;
+        while (n != null) {
+            if (k <= n.key) {
+                n = n.left;
+            } else {
+                rank += size(n.left) + 1;
+                n = n.right;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * public int select(int i)
+     * Returns the i-th smallest key (0-based), or -1 if i is out of range.
+     * Complexity: O(logn)
+     */
+    public int select(int i) {
+        if (i < 0 || i >= size()) return -1;
+        Node n = root;
+        while (size(n.left) != i) {
+            if (i < size(n.left)) {
+                n = n.left;
+            } else {
+                i -= size(n.left) + 1;
+                n = n.right;
+            }
+        }
+        return n.key;
+    }
+
+    /**
+     * public WeightBalancedTree[] split(int x)
+     * splits the tree into 2 trees according to the key x.
+     * Returns an array [t1, t2] with two trees. keys(t1) < x < keys(t2).
+     * Walks down to x, and links the subtrees left of the path into t1 and those right of it into t2, like
+     * AVLTree.split; x doesn't have to be in the tree. The tree shouldn't be used afterwards.
+     * Complexity: O(logn)
+     */
+    public WeightBalancedTree[] split(int x) {
+        Node[] parts = split(root, x);
+        root = null;
+        return new WeightBalancedTree[]{new WeightBalancedTree(parts[0]), new WeightBalancedTree(parts[1])};
+    }
+
+    private Node[] split(Node n, int x) {
+        if (n == null) return new Node[]{null, null};
+        if (x < n.key) {
+            Node[] parts = split(n.left, x);
+            parts[1] = link(parts[1], n, n.right);
+            return parts;
+        } else if (x > n.key) {
+            Node[] parts = split(n.right, x);
+            parts[0] = link(n.left, n, parts[0]);
+            return parts;
+        }
+        return new Node[]{n.left, n.right};
+    }
+
+    /**
+     * public int join(int k, String i, WeightBalancedTree t)
+     * joins t and the item k -> i into this tree (t shouldn't be used afterwards).
+     * Returns the number of rotations made (a double rotation counts as 2).
+     * precondition: keys(t) < k < keys() or keys() < k < keys(t)
+     * Complexity: O(log(bigger tree size / smaller tree size) + 1)
+     */
+    public int join(int k, String i, WeightBalancedTree t) {
+        boolean thisIsSmaller = root != null ? root.key < k : t.root == null || t.root.key > k; // any key tells the side
+        rebalanceOps = 0;
+        Node m = new Node(k, i);
+        root = thisIsSmaller ? link(this.root, m, t.root) : link(t.root, m, this.root);
+        t.root = null;
+        return rebalanceOps;
+    }
+
+    /**
+     * private Node link(Node l, Node m, Node r)
+     * Returns a balanced tree of l, the node m and r (keys(l) < m.key < keys(r)), of any sizes: m is placed next to
+     * the smaller tree, down the inner spine of the bigger one, at the first subtree it is balanced with, and the
+     * spine is rebalanced on the way back up.
+     * Complexity: O(log(bigger tree size / smaller tree size) + 1)
+     */
+    private Node link(Node l, Node m, Node r) {
+        if (l == null) return insertMin(r, m);
+        if (r == null) return insertMax(l, m);
+        if (DELTA * weight(l) < weight(r)) {
+            r.left = link(l, m, r.left);
+            return balance(r);
+        }
+        if (DELTA * weight(r) < weight(l)) {
+            l.right = link(l.right, m, r);
+            return balance(l);
+        }
+        m.left = l;
+        m.right = r;
+        update(m);
+        return m;
+    }
+
+    private Node insertMin(Node n, Node m) {
+        if (n == null) {
+            m.left = m.right = null;
+            update(m);
+            return m;
+        }
+        n.left = insertMin(n.left, m);
+        return balance(n);
+    }
+
+    private Node insertMax(Node n, Node m) {
+        if (n == null) {
+            m.left = m.right = null;
+            update(m);
+            return m;
+        }
+        n.right = insertMax(n.right, m);
+        return balance(n);
+    }
+
+    /**
+     * private Node balance(Node n)
+     * Updates the size of n, whose subtrees are balanced and were balanced with each other before one of them
+     * changed by one item (or by a link), and restores the balance of n with one single or double rotation.
+     * Complexity: O(1)
+     */
+    private Node balance(Node n) {
+        update(n);
+        if (weight(n.right) > DELTA * weight(n.left)) {
+            Node r = n.right;
+            if (weight(r.left) < RATIO * weight(r.right)) return rotateLeft(n);
+            n.right = rotateRight(r);
+            return rotateLeft(n);
+        }
+        if (weight(n.left) > DELTA * weight(n.right)) {
+            Node l = n.left;
+            if (weight(l.right) < RATIO * weight(l.left)) return rotateRight(n);
+            n.left = rotateLeft(l);
+            return rotateRight(n);
+        }
+        return n;
+    }
+
+    private Node rotateLeft(Node n) {
+        Node r = n.right;
+        n.right = r.left;
+        r.left = n;
+        update(n);
+        update(r);
+        rebalanceOps++;
+        return r;
+    }
+
+    private Node rotateRight(Node n) {
+        Node l = n.left;
+        n.left = l.right;
+        l.right = n;
+        update(n);
+        update(l);
+        rebalanceOps++;
+        return l;
+    }
+
+    /**
+     * boolean isBalanced()
+     * Checks the invariants of the whole tree: key order, subtree sizes and the weight balance of every node.
+     * Complexity: O(n)
+     */
+    boolean isBalanced() {
+        return isBalanced(root, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    private static boolean isBalanced(Node n, long lo, long hi) {
+        if (n == null) return true;
+        return lo < n.key && n.key < hi && n.size == size(n.left) + size(n.right) + 1
+                && DELTA * weight(n.left) >= weight(n.right) && DELTA * weight(n.right) >= weight(n.left)
+                && isBalanced(n.left, lo, n.key) && isBalanced(n.right, n.key, hi);
+    }
+
+    private static int size(Node n) {
+        return n == null ? 0 : n.size;
+    }
+
+    private static int weight(Node n) {
+        return size(n) + 1;
+    }
+
+    private static void update(Node n) {
+        n.size = size(n.left) + size(n.right) + 1;
+    }
+}
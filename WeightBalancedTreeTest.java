@@ -0,0 +1,93 @@
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeightBalancedTreeTest {
+
+    private static int[] keys(java.util.Map<Integer, String> m) {
+        return m.keySet().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @org.junit.jupiter.api.Test
+    void init() {
+        WeightBalancedTree t1 = new WeightBalancedTree();
+        assertTrue(t1.empty());
+        assertEquals(-1, t1.getRank());
+        assertNull(t1.min());
+        assertNull(t1.max());
+        assertNull(t1.search(1));
+        assertEquals(-1, t1.delete(1));
+    }
+
+    @org.junit.jupiter.api.Test
+    void sequentialInsert() {
+        WeightBalancedTree t1 = new WeightBalancedTree();
+        int rotations = 0;
+        for (int i = 0; i < 1 << 16; i++) rotations += t1.insert(i, "Key is " + i);
+        assertEquals(-1, t1.insert(5, "again"));
+        assertTrue(t1.isBalanced());
+        assertTrue(rotations > 0 && rotations < 1 << 16);
+        assertTrue(t1.getRank() <= 2 * 16, "height " + t1.getRank());
+        assertEquals(12345, t1.select(12345));
+        assertEquals(12345, t1.rank(12345));
+        assertEquals("Key is 0", t1.min());
+        assertEquals("Key is 65535", t1.max());
+    }
+
+    @org.junit.jupiter.api.Test
+    void randomAgainstTreeMap() {
+        Random r = new Random(24);
+        WeightBalancedTree t1 = new WeightBalancedTree();
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        for (int i = 0; i < 200000; i++) {
+            int k = r.nextInt(20000);
+            if (r.nextInt(5) < 3) {
+                assertEquals(expected.containsKey(k), t1.insert(k, "v" + k) == -1);
+                expected.putIfAbsent(k, "v" + k);
+            } else {
+                assertEquals(!expected.containsKey(k), t1.delete(k) == -1);
+                expected.remove(k);
+            }
+        }
+        assertTrue(t1.isBalanced());
+        assertEquals(expected.size(), t1.size());
+        assertArrayEquals(keys(expected), t1.keysToArray());
+        assertArrayEquals(expected.values().toArray(new String[0]), t1.infoToArray());
+        for (int k = 0; k < 20000; k++) assertEquals(expected.get(k), t1.search(k));
+        assertEquals(expected.firstEntry().getValue(), t1.min());
+        assertEquals(expected.lastEntry().getValue(), t1.max());
+
+        for (int k : keys(expected)) assertNotEquals(-1, t1.delete(k));
+        assertTrue(t1.empty());
+    }
+
+    @org.junit.jupiter.api.Test
+    void splitAndJoin() {
+        Random r = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            WeightBalancedTree t1 = new WeightBalancedTree();
+            TreeMap<Integer, String> expected = new TreeMap<>();
+            for (int i = r.nextInt(2000); i > 0; i--) {
+                int k = r.nextInt(10000) * 2;
+                t1.insert(k, "Key is " + k);
+                expected.put(k, "Key is " + k);
+            }
+            int x = r.nextInt(20000);
+            WeightBalancedTree[] parts = t1.split(x); // x doesn't have to be in the tree
+            assertTrue(parts[0].isBalanced() && parts[1].isBalanced());
+            assertArrayEquals(keys(expected.headMap(x)), parts[0].keysToArray());
+            assertArrayEquals(keys(expected.tailMap(x, false)), parts[1].keysToArray());
+
+            // join the small half with an unrelated, differently sized tree above it
+            WeightBalancedTree big = new WeightBalancedTree();
+            int bigSize = r.nextInt(5000);
+            for (int k = 30000; k < 30000 + bigSize; k++) big.insert(k, "big");
+            big.join(25000, "middle", parts[0]);
+            assertTrue(big.isBalanced());
+            assertEquals(expected.headMap(x).size() + 1 + bigSize, big.size());
+            assertEquals(expected.headMap(x).size(), big.rank(25000));
+            assertEquals("middle", big.search(25000));
+        }
+    }
+}
@@ -0,0 +1,163 @@
+import benchmarks.Subject;
+
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * enum Engine
+ * The tree implementations which can be benchmarked, each bound to its tree class by method references.
+ * It lives in the unnamed package, next to the trees; the benchmarks reach it through Subject.create.
+ * ArrayAVLTree has no split and join, so ARRAY throws UnsupportedOperationException for them; it is the only engine
+ * which preallocates room for an expected number of items.
+ */
+public enum Engine {
+    AVL(new Binding<AVLTree>(capacity -> new AVLTree(), AVLTree::insert, AVLTree::delete, AVLTree::search,
+            AVLTree::min, AVLTree::max, AVLTree::keysToArray, AVLTree::infoToArray, AVLTree::split,
+            (t, k, i, other) -> t.join(t.createNewNode(k, i), other))),
+    BPLUS(new Binding<BPlusTree>(capacity -> new BPlusTree(), BPlusTree::insert, BPlusTree::delete,
+            BPlusTree::search, BPlusTree::min, BPlusTree::max, BPlusTree::keysToArray, BPlusTree::infoToArray,
+            BPlusTree::split, BPlusTree::join)),
+    SPLAY(new Binding<SplayTree>(capacity -> new SplayTree(), SplayTree::insert, SplayTree::delete,
+            SplayTree::search, SplayTree::min, SplayTree::max, SplayTree::keysToArray, SplayTree::infoToArray,
+            SplayTree::split, SplayTree::join)),
+    WBT(new Binding<WeightBalancedTree>(capacity -> new WeightBalancedTree(), WeightBalancedTree::insert,
+            WeightBalancedTree::delete, WeightBalancedTree::search, WeightBalancedTree::min, WeightBalancedTree::max,
+            WeightBalancedTree::keysToArray, WeightBalancedTree::infoToArray, WeightBalancedTree::split,
+            WeightBalancedTree::join)),
+    WAVL(new Binding<WAVLTree>(capacity -> new WAVLTree(), WAVLTree::insert, WAVLTree::delete, WAVLTree::search,
+            WAVLTree::min, WAVLTree::max, WAVLTree::keysToArray, WAVLTree::infoToArray, WAVLTree::split,
+            WAVLTree::join)),
+    ARRAY(new Binding<ArrayAVLTree>(capacity -> capacity > 0 ? new ArrayAVLTree(capacity) : new ArrayAVLTree(),
+            ArrayAVLTree::insert, ArrayAVLTree::delete,
+            ArrayAVLTree::search, ArrayAVLTree::min, ArrayAVLTree::max, ArrayAVLTree::keysToArray,
+            ArrayAVLTree::infoToArray, (t, x) -> {
+                throw new UnsupportedOperationException("ArrayAVLTree has no split");
+            }, (t, k, i, other) -> {
+                throw new UnsupportedOperationException("ArrayAVLTree has no join");
+            }));
+
+    private final Binding<?> binding;
+
+    Engine(Binding<?> binding) {
+        this.binding = binding;
+    }
+
+    /**
+     * public static Subject create(String engine, int capacity)
+     * Returns a new empty tree of the named engine, with room for capacity items (if positive) if the engine
+     * preallocates.
+     * Complexity: O(capacity)
+     */
+    public static Subject create(String engine, int capacity) {
+        return valueOf(engine).binding.create(capacity);
+    }
+
+    interface Update<T> {
+        int apply(T t, int k, String i);
+    }
+
+    interface KeyOp<T, R> {
+        R apply(T t, int k);
+    }
+
+    interface KeyCount<T> {
+        int apply(T t, int k);
+    }
+
+    interface Join<T> {
+        int apply(T t, int k, String i, T other);
+    }
+
+    /**
+     * static final class Binding<T>
+     * The Subject operations of one engine, as method references on its tree class T. create wraps a new T in
+     * the single Subject adapter, so adding an engine takes one Engine constant and no new class.
+     */
+    static final class Binding<T> {
+        private final IntFunction<T> constructor;
+        private final Update<T> insert;
+        private final KeyCount<T> delete;
+        private final KeyOp<T, String> search;
+        private final Function<T, String> min;
+        private final Function<T, String> max;
+        private final Function<T, int[]> keysToArray;
+        private final Function<T, String[]> infoToArray;
+        private final KeyOp<T, Object[]> split;
+        private final Join<T> join;
+
+        Binding(IntFunction<T> constructor, Update<T> insert, KeyCount<T> delete, KeyOp<T, String> search,
+                Function<T, String> min, Function<T, String> max, Function<T, int[]> keysToArray,
+                Function<T, String[]> infoToArray, KeyOp<T, Object[]> split, Join<T> join) {
+            this.constructor = constructor;
+            this.insert = insert;
+            this.delete = delete;
+            this.search = search;
+            this.min = min;
+            this.max = max;
+            this.keysToArray = keysToArray;
+            this.infoToArray = infoToArray;
+            this.split = split;
+            this.join = join;
+        }
+
+        Subject create(int capacity) {
+            return new Adapter(constructor.apply(capacity));
+        }
+
+        final class Adapter implements Subject {
+            final T t;
+
+            Adapter(T t) {
+                this.t = t;
+            }
+
+            public int insert(int k, String i) {
+                return insert.apply(t, k, i);
+            }
+
+            public int delete(int k) {
+                return delete.apply(t, k);
+            }
+
+            public String search(int k) {
+                return search.apply(t, k);
+            }
+
+            public String min() {
+                return min.apply(t);
+            }
+
+            public String max() {
+                return max.apply(t);
+            }
+
+            public int[] keysToArray() {
+                return keysToArray.apply(t);
+            }
+
+            public String[] infoToArray() {
+                return infoToArray.apply(t);
+            }
+
+            public Object[] split(int x) {
+                return split.apply(t, x);
+            }
+
+            public int join(int k, String i, Subject other) {
+                return join.apply(t, k, i, sameEngine(other).t);
+            }
+
+            private Adapter sameEngine(Subject other) {
+                if (!(other instanceof Binding.Adapter) || ((Binding<?>.Adapter) other).engine() != Binding.this)
+                    throw new IllegalArgumentException("can only join trees of the same engine");
+                @SuppressWarnings("unchecked")
+                Adapter same = (Adapter) other;
+                return same;
+            }
+
+            private Binding<T> engine() {
+                return Binding.this;
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DeleteBenchmark
+ * <p>
+ * Deletes size keys, following the pattern, from a tree holding keys 0..size-1. Every shot starts from a newly
+ * populated tree, so the result is the time of the whole run of size deletes (divide by size for the cost of one
+ * delete); a ZIPFIAN run repeats its hot keys, and those deletes find nothing.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeleteBenchmark {
+
+    @Param({"AVL"})
+    public String engine;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"SEQUENTIAL", "RANDOM", "ZIPFIAN"})
+    public Keys.Pattern pattern;
+
+    private int[] keys;
+    private Subject tree;
+
+    @Setup(Level.Trial)
+    public void generateKeys() {
+        keys = Keys.generate(pattern, size, size);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        tree = Subject.populate(engine, size);
+    }
+
+    @Benchmark
+    public void delete(Blackhole bh) {
+        for (int k : keys) bh.consume(tree.delete(k));
+    }
+}
@@ -0,0 +1,63 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InsertBenchmark
+ * <p>
+ * Inserts size keys, following the pattern, into an empty tree. Every shot starts from a new empty tree, so the
+ * result is the time of the whole run of size inserts (divide by size for the cost of one insert); a ZIPFIAN run
+ * repeats its hot keys, and those inserts find the key and change nothing.
+ * The tree gets room for size items up front, if its engine preallocates, and all items share one info string, so
+ * with -prof gc, gc.alloc.rate.norm of a RANDOM run (which in single shot mode includes the allocations of the
+ * iteration's setup, here the new tree) divided by size is the footprint of one item.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InsertBenchmark {
+
+    @Param({"AVL"})
+    public String engine;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"SEQUENTIAL", "RANDOM", "ZIPFIAN"})
+    public Keys.Pattern pattern;
+
+    private int[] keys;
+    private Subject tree;
+
+    @Setup(Level.Trial)
+    public void generateKeys() {
+        keys = Keys.generate(pattern, size, size);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        tree = Subject.create(engine, size);
+    }
+
+    @Benchmark
+    public void insert(Blackhole bh) {
+        for (int k : keys) bh.consume(tree.insert(k, "v"));
+    }
+}
@@ -0,0 +1,55 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JoinBenchmark
+ * <p>
+ * Joins a tree holding keys [0, size/2) and one holding (size/2, size) with the key size/2.
+ * join consumes its trees, so every shot gets newly populated ones and times a single call.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JoinBenchmark {
+
+    @Param({"AVL"})
+    public String engine;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private Subject smaller, bigger;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        smaller = Subject.create(engine);
+        bigger = Subject.create(engine);
+        for (int k : Keys.generate(Keys.Pattern.RANDOM, size, size)) {
+            if (k < size / 2) smaller.insert(k, "v");
+            else if (k > size / 2) bigger.insert(k, "v");
+        }
+    }
+
+    @Benchmark
+    public void join(Blackhole bh) {
+        bh.consume(smaller.join(size / 2, "v", bigger));
+    }
+}
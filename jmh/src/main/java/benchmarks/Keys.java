@@ -0,0 +1,98 @@
+package benchmarks;
+
+import java.util.Random;
+
+/**
+ * Keys
+ * <p>
+ * The key sequences the benchmarks hand to the trees.
+ */
+public final class Keys {
+
+    static final long SEED = 42;
+
+    /**
+     * enum Pattern
+     * The order in which keys are handed to the tree.
+     * SEQUENTIAL - 0, 1, 2, ...
+     * RANDOM - uniform over the key space
+     * ZIPFIAN - skewed (theta = 0.99) over the key space, hot keys scattered over the whole range
+     */
+    public enum Pattern {SEQUENTIAL, RANDOM, ZIPFIAN}
+
+    private Keys() {
+    }
+
+    /**
+     * static int[] generate(Pattern pattern, int n, int count)
+     * Generates `count` keys over the key space [0, n) according to the pattern.
+     * A RANDOM run of exactly n keys is a permutation of [0, n), so an insert run hits every key once.
+     * Zipfian ranks are scattered with a multiplicative hash so hot keys are not neighbours in the tree.
+     * Complexity: O(n + count)
+     */
+    static int[] generate(Pattern pattern, int n, int count) {
+        Random random = new Random(SEED);
+        int[] keys = new int[count];
+        switch (pattern) {
+            case SEQUENTIAL:
+                for (int i = 0; i < count; i++) keys[i] = i % n;
+                break;
+            case RANDOM:
+                if (count == n) {
+                    for (int i = 0; i < n; i++) keys[i] = i;
+                    for (int i = n - 1; i > 0; i--) { // Fisher-Yates
+                        int j = random.nextInt(i + 1);
+                        int tmp = keys[i];
+                        keys[i] = keys[j];
+                        keys[j] = tmp;
+                    }
+                } else {
+                    for (int i = 0; i < count; i++) keys[i] = random.nextInt(n);
+                }
+                break;
+            case ZIPFIAN:
+                Zipfian zipfian = new Zipfian(n, 0.99, random);
+                for (int i = 0; i < count; i++) keys[i] = scatter(zipfian.next(), n);
+                break;
+        }
+        return keys;
+    }
+
+    private static int scatter(int rank, int n) {
+        return (int) (((rank * 0x9E3779B97F4A7C15L) >>> 1) % n);
+    }
+
+    /**
+     * static class Zipfian
+     * Zipfian generator over [0, n) (Gray et al., "Quickly generating billion-record synthetic databases").
+     * Complexity: O(n) construction, O(1) per sample
+     */
+    static class Zipfian {
+        private final int n;
+        private final double theta, alpha, zetan, eta;
+        private final Random random;
+
+        Zipfian(int n, double theta, Random random) {
+            this.n = n;
+            this.theta = theta;
+            this.random = random;
+            this.zetan = zeta(n, theta);
+            this.alpha = 1.0 / (1.0 - theta);
+            this.eta = (1 - Math.pow(2.0 / n, 1 - theta)) / (1 - zeta(2, theta) / zetan);
+        }
+
+        private static double zeta(int n, double theta) {
+            double sum = 0;
+            for (int i = 1; i <= n; i++) sum += 1 / Math.pow(i, theta);
+            return sum;
+        }
+
+        int next() {
+            double u = random.nextDouble();
+            double uz = u * zetan;
+            if (uz < 1.0) return 0;
+            if (uz < 1.0 + Math.pow(0.5, theta)) return Math.min(1, n - 1);
+            return Math.min(n - 1, (int) (n * Math.pow(eta * u - eta + 1, alpha)));
+        }
+    }
+}
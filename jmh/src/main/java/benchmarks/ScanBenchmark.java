@@ -0,0 +1,68 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ScanBenchmark
+ * <p>
+ * The operations which don't take a key - min, max (nanoseconds) and the in-order exports keysToArray and
+ * infoToArray (microseconds) - on a tree holding keys 0..size-1. Sampled one call at a time, for percentiles.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScanBenchmark {
+
+    @Param({"AVL"})
+    public String engine;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private Subject tree;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tree = Subject.populate(engine, size);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void min(Blackhole bh) {
+        bh.consume(tree.min());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void max(Blackhole bh) {
+        bh.consume(tree.max());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void keysToArray(Blackhole bh) {
+        bh.consume(tree.keysToArray());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void infoToArray(Blackhole bh) {
+        bh.consume(tree.infoToArray());
+    }
+}
@@ -0,0 +1,59 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SearchBenchmark
+ * <p>
+ * search(k) on a tree holding keys 0..size-1, with the probed keys following the pattern.
+ * Sampled one call at a time, so the result carries latency percentiles; the searched keys repeat every
+ * PROBES calls.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    static final int PROBES = 1 << 20;
+
+    @Param({"AVL"})
+    public String engine;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"SEQUENTIAL", "RANDOM", "ZIPFIAN"})
+    public Keys.Pattern pattern;
+
+    private Subject tree;
+    private int[] probes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tree = Subject.populate(engine, size);
+        probes = Keys.generate(pattern, size, PROBES);
+    }
+
+    @Benchmark
+    public void search(Blackhole bh) {
+        bh.consume(tree.search(probes[next++ & (PROBES - 1)]));
+    }
+}
@@ -0,0 +1,62 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SplitBenchmark
+ * <p>
+ * Splits a tree holding keys 0..size-1 at a key drawn from the pattern, a different one every shot.
+ * split consumes its tree, so every shot gets a newly populated one and times a single call.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SplitBenchmark {
+
+    @Param({"AVL"})
+    public String engine;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"SEQUENTIAL", "RANDOM", "ZIPFIAN"})
+    public Keys.Pattern pattern;
+
+    private int[] splitKeys;
+    private int shot;
+    private Subject tree;
+
+    @Setup(Level.Trial)
+    public void generateKeys() {
+        splitKeys = Keys.generate(pattern, size, 1024);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        tree = Subject.populate(engine, size);
+    }
+
+    @Benchmark
+    public void split(Blackhole bh) {
+        Object[] parts = tree.split(splitKeys[shot++ & 1023]);
+        bh.consume(parts[0]);
+        bh.consume(parts[1]);
+    }
+}
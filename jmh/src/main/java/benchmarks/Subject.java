@@ -0,0 +1,90 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Subject
+ * <p>
+ * The operations shared by all benchmarked engines (AVLTree, BPlusTree, SplayTree, WeightBalancedTree, WAVLTree,
+ * ArrayAVLTree), implemented for each of them by the Engine enum.
+ * <p>
+ * The trees and Engine live in the unnamed package, which a named package can't import, and JMH only accepts
+ * benchmarks in a named package. So the benchmarks only see this interface, and create subjects by engine name
+ * through a method handle to Engine.create, resolved once. Every fork runs a single engine, so the interface calls
+ * are monomorphic and inlined like direct calls.
+ */
+public interface Subject {
+
+    int insert(int k, String i);
+
+    int delete(int k);
+
+    String search(int k);
+
+    String min();
+
+    String max();
+
+    int[] keysToArray();
+
+    String[] infoToArray();
+
+    Object[] split(int x);
+
+    int join(int k, String i, Subject t); // t is of the same engine
+
+    /**
+     * static Subject create(String engine)
+     * Returns a new empty tree of the engine with that name (an Engine constant: AVL, BPLUS, SPLAY, WBT, WAVL, ARRAY).
+     * Complexity: O(1)
+     */
+    static Subject create(String engine) {
+        return create(engine, 0);
+    }
+
+    /**
+     * static Subject create(String engine, int capacity)
+     * Same as create(engine), but with room for capacity items up front if the engine preallocates (ARRAY does).
+     * Complexity: O(capacity)
+     */
+    static Subject create(String engine, int capacity) {
+        try {
+            return (Subject) Factory.CREATE.invokeExact(engine, capacity);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * static Subject populate(String engine, int n)
+     * Returns a tree of the engine holding keys 0..n-1 (the info of k is Integer.toString(k)), inserted in random
+     * order.
+     * Complexity: O(nlogn)
+     */
+    static Subject populate(String engine, int n) {
+        Subject t = create(engine, n);
+        for (int k : Keys.generate(Keys.Pattern.RANDOM, n, n)) t.insert(k, Integer.toString(k));
+        return t;
+    }
+
+    final class Factory {
+        private static final MethodHandle CREATE;
+
+        static {
+            try {
+                Class<?> engine = Class.forName("Engine");
+                CREATE = MethodHandles.publicLookup()
+                        .findStatic(engine, "create", MethodType.methodType(Subject.class, String.class, int.class));
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private Factory() {
+        }
+    }
+}